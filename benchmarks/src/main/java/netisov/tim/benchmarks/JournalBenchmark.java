@@ -0,0 +1,64 @@
+package netisov.tim.benchmarks;
+
+import netisov.tim.ElevatorEvent;
+import netisov.tim.EventJournal;
+import netisov.tim.LookScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writing events to the journal by several elevators at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+  private Path directory;
+  private EventJournal journal;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("journal");
+    journal = new EventJournal(directory);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    journal.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long appendOneWriter() {
+    return journal.append(ElevatorEvent.Type.PASS_FLOOR, 1, 5, LookScheduler.UP, 1000);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long appendFourWriters() {
+    return journal.append(ElevatorEvent.Type.PASS_FLOOR, 1, 5, LookScheduler.UP, 1000);
+  }
+}
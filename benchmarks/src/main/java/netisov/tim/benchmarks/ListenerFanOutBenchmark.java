@@ -0,0 +1,63 @@
+package netisov.tim.benchmarks;
+
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorState;
+import netisov.tim.SimulationClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivering pass floor and door events to listeners, elevator goes
+ * to the top floor and back, so there are two pass events per floor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerFanOutBenchmark {
+
+  @Param({"10", "100", "500"})
+  private int floors;
+
+  @Param({"0", "1", "16"})
+  private int listeners;
+
+  private Elevator elevator;
+  private List<Integer> top;
+  private List<Integer> bottom;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    elevator = new Elevator(2, 4, 2, new SimulationClock());
+    for (int i = 0; i < listeners; i++) {
+      elevator.addPassFloorListener(blackhole::consume);
+      elevator.addOpenDoorListener(blackhole::consume);
+      elevator.addCloseDoorListener(blackhole::consume);
+    }
+    top = Collections.singletonList(ElevatorState.DEFAULT_FLOOR + floors - 1);
+    bottom = Collections.singletonList(ElevatorState.DEFAULT_FLOOR);
+  }
+
+  @Benchmark
+  public int roundTrip() {
+    elevator.pressedFloorButtons(top);
+    elevator.pressedFloorButtons(bottom);
+    return elevator.getState().getCurrentFloor();
+  }
+}
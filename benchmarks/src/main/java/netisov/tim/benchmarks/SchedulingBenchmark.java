@@ -0,0 +1,100 @@
+package netisov.tim.benchmarks;
+
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorState;
+import netisov.tim.LookScheduler;
+import netisov.tim.SimulationClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing of elevator calls, elevators run on {@link SimulationClock},
+ * so nothing sleeps and only scheduling work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulingBenchmark {
+  private static final int SPEED = 2;
+  private static final int FLOOR_HEIGHT = 4;
+  private static final int DOOR_TIMEOUT = 2;
+
+  @Param({"10", "50", "100", "500"})
+  private int floors;
+
+  @Param({"1", "8", "64"})
+  private int calls;
+
+  private List<Integer> callFloors;
+  private LookScheduler scheduler;
+  private int[] positions;
+  private int position;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    callFloors = new ArrayList<>(calls);
+    scheduler = new LookScheduler();
+    for (int i = 0; i < calls; i++) {
+      int floor = ElevatorState.DEFAULT_FLOOR + random.nextInt(floors);
+      callFloors.add(floor);
+      scheduler.add(floor);
+    }
+    positions = new int[1024];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = ElevatorState.DEFAULT_FLOOR + random.nextInt(floors);
+    }
+  }
+
+  /**
+   * Choosing the next stop, it's what nearest floor search used to do.
+   */
+  @Benchmark
+  public int nextStop() {
+    scheduler.setDirection(LookScheduler.IDLE);
+    return scheduler.next(positions[position++ & (positions.length - 1)]);
+  }
+
+  @Benchmark
+  public int callFrom(Car car) throws InterruptedException {
+    car.elevator.callFrom(callFloors);
+    return car.elevator.getState().getCurrentFloor();
+  }
+
+  @Benchmark
+  public int pressedFloorButtons(Car car) {
+    car.elevator.pressedFloorButtons(callFloors);
+    return car.elevator.getState().getCurrentFloor();
+  }
+
+  /**
+   * New elevator for every call, building it isn't measured.
+   */
+  @State(Scope.Thread)
+  public static class Car {
+    private Elevator elevator;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      elevator = new Elevator(SPEED, FLOOR_HEIGHT, DOOR_TIMEOUT, new SimulationClock());
+    }
+  }
+}
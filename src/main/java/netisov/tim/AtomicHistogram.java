@@ -0,0 +1,53 @@
+package netisov.tim;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram with the same buckets as {@link LatencyHistogram}, any number of threads
+ * record into it without locks and allocation, percentiles are taken from its {@link #snapshot()}.
+ */
+public final class AtomicHistogram {
+  private final long highestTrackableValue;
+  private final AtomicLongArray counts;
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong();
+
+  public AtomicHistogram() {
+    this(LatencyHistogram.DEFAULT_HIGHEST_VALUE);
+  }
+
+  /**
+   * @param highestTrackableValue the highest value to count, bigger ones are counted as this one
+   */
+  public AtomicHistogram(long highestTrackableValue) {
+    this.highestTrackableValue = LatencyHistogram.trackable(highestTrackableValue);
+    this.counts = new AtomicLongArray(LatencyHistogram.countsLength(this.highestTrackableValue));
+  }
+
+  /**
+   * @param value value to count, negative one is counted as 0
+   */
+  public void record(long value) {
+    value = Math.max(0, Math.min(value, highestTrackableValue));
+    counts.incrementAndGet(LatencyHistogram.countsIndex(value));
+    sum.add(value);
+    if (value < min.get()) {
+      min.accumulateAndGet(value, Math::min);
+    }
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * @return copy of values recorded so far, values recorded meanwhile may be partly taken
+   */
+  public LatencyHistogram snapshot() {
+    LatencyHistogram snapshot = new LatencyHistogram(highestTrackableValue);
+    snapshot.load(counts, sum.sum(), min.get(), max.get());
+    return snapshot;
+  }
+}
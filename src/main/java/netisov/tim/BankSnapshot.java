@@ -0,0 +1,191 @@
+package netisov.tim;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * States of all elevators of a bank, written to a file in compact binary form with a checksum.
+ * A file is written under temporary name and renamed when complete, so a crash while
+ * writing leaves the previous snapshot in place, a damaged file is skipped when loading.
+ */
+public final class BankSnapshot {
+  private static final int MAGIC = 0x454c5653;
+  private static final int VERSION = 1;
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".bin";
+  /**
+   * Number of snapshot files kept in directory.
+   */
+  private static final int KEEP = 2;
+  private static final int MAX_FLOORS = 1 << 20;
+
+  private final long time;
+  private final List<CarSnapshot> cars;
+
+  /**
+   * @param time time of snapshot in milliseconds
+   * @param cars states of elevators
+   */
+  public BankSnapshot(long time, List<CarSnapshot> cars) {
+    this.time = time;
+    this.cars = Collections.unmodifiableList(new ArrayList<>(cars));
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  public List<CarSnapshot> getCars() {
+    return cars;
+  }
+
+  /**
+   * Write snapshot to a new file of directory and remove old ones.
+   *
+   * @param directory directory of snapshots, created if it doesn't exist
+   * @return written file
+   * @throws IOException if file can't be written
+   */
+  public Path save(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Path file = directory.resolve(String.format("%s%020d%s", PREFIX, time, SUFFIX));
+    Path temporary = directory.resolve(file.getFileName() + ".tmp");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    write(bytes);
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    List<Path> snapshots = snapshots(directory);
+    for (int i = 0; i < snapshots.size() - KEEP; i++) {
+      Files.deleteIfExists(snapshots.get(i));
+    }
+    return file;
+  }
+
+  /**
+   * @param directory directory of snapshots
+   * @return the latest snapshot which isn't damaged or null if there is none
+   * @throws IOException if directory can't be read
+   */
+  public static BankSnapshot loadLatest(Path directory) throws IOException {
+    List<Path> snapshots = snapshots(directory);
+    for (int i = snapshots.size() - 1; i >= 0; i--) {
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshots.get(i)))) {
+        return read(in);
+      } catch (IOException e) {
+        System.err.printf("Skipping snapshot %s: %s%s", snapshots.get(i), e.getMessage(), System.lineSeparator());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param out stream to write to
+   * @throws IOException if stream fails
+   */
+  public void write(OutputStream out) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + cars.size() * 64);
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeLong(time);
+    data.writeInt(cars.size());
+    for (CarSnapshot car : cars) {
+      data.writeInt(car.getElevator());
+      data.writeInt(car.getFloor());
+      data.writeBoolean(car.isDoorOpened());
+      data.writeByte(car.getDirection());
+      data.writeLong(car.getJournalSequence());
+      writeFloors(data, car.stops());
+      writeFloors(data, car.upCalls());
+      writeFloors(data, car.downCalls());
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray(), 0, bytes.size());
+    data.writeLong(crc.getValue());
+    bytes.writeTo(out);
+  }
+
+  /**
+   * @param in stream to read from
+   * @return snapshot
+   * @throws IOException if stream fails or snapshot is damaged
+   */
+  public static BankSnapshot read(InputStream in) throws IOException {
+    CRC32 crc = new CRC32();
+    DataInputStream data = new DataInputStream(new CheckedInputStream(in, crc));
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a snapshot");
+    }
+    if (data.readInt() != VERSION) {
+      throw new IOException("Unknown snapshot version");
+    }
+    long time = data.readLong();
+    int count = data.readInt();
+    List<CarSnapshot> cars = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      cars.add(new CarSnapshot(data.readInt(), data.readInt(), data.readBoolean(), data.readByte(), data.readLong(),
+          readFloors(data), readFloors(data), readFloors(data)));
+    }
+    long expected = crc.getValue();
+    if (new DataInputStream(in).readLong() != expected) {
+      throw new IOException("Snapshot is damaged");
+    }
+    return new BankSnapshot(time, cars);
+  }
+
+  private static void writeFloors(DataOutputStream data, int[] floors) throws IOException {
+    data.writeInt(floors.length);
+    for (int floor : floors) {
+      data.writeInt(floor);
+    }
+  }
+
+  private static int[] readFloors(DataInputStream data) throws IOException {
+    int length = data.readInt();
+    if (length < 0 || length > MAX_FLOORS) {
+      throw new IOException("Snapshot is damaged");
+    }
+    int[] floors = new int[length];
+    for (int i = 0; i < length; i++) {
+      floors[i] = data.readInt();
+    }
+    return floors;
+  }
+
+  private static List<Path> snapshots(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(f -> f.getFileName().toString().startsWith(PREFIX)
+          && f.getFileName().toString().endsWith(SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package netisov.tim;
+
+/**
+ * Floors of a building, from the lowest basement to the roof,
+ * floors below ground have negative numbers.
+ */
+public final class BuildingTopology {
+  private final int lowestFloor;
+  private final int highestFloor;
+
+  /**
+   * @param lowestFloor  number of the lowest floor, negative for basements
+   * @param highestFloor number of the highest floor
+   */
+  public BuildingTopology(int lowestFloor, int highestFloor) {
+    if (lowestFloor > highestFloor) {
+      throw new IllegalArgumentException("Lowest floor " + lowestFloor + " is above highest floor " + highestFloor);
+    }
+    this.lowestFloor = lowestFloor;
+    this.highestFloor = highestFloor;
+  }
+
+  /**
+   * Building with floors from {@link ElevatorState#DEFAULT_FLOOR} and up.
+   *
+   * @param numFloors number of floors
+   * @return topology
+   */
+  public static BuildingTopology ofFloors(int numFloors) {
+    return new BuildingTopology(ElevatorState.DEFAULT_FLOOR, ElevatorState.DEFAULT_FLOOR + numFloors - 1);
+  }
+
+  public int getLowestFloor() {
+    return lowestFloor;
+  }
+
+  public int getHighestFloor() {
+    return highestFloor;
+  }
+
+  public int getNumFloors() {
+    return highestFloor - lowestFloor + 1;
+  }
+
+  public boolean contains(int floor) {
+    return floor >= lowestFloor && floor <= highestFloor;
+  }
+
+  /**
+   * @param floor number
+   * @return position of floor counting from the lowest one, starting from 0
+   */
+  public int toIndex(int floor) {
+    return floor - lowestFloor;
+  }
+
+  /**
+   * @param index position of floor counting from the lowest one
+   * @return floor number
+   */
+  public int toFloor(int index) {
+    return index + lowestFloor;
+  }
+}
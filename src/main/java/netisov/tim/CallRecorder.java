@@ -0,0 +1,81 @@
+package netisov.tim;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Records every call a bank of elevators gets with its logical time, so a run can be
+ * repeated by {@link CallReplay}. Every line is time in milliseconds since recording started,
+ * then either HALL with floor and direction, CAR with index of elevator and floor or DEST with
+ * floor and destination of a destination call, like {@code 1500,HALL,7,-1}.
+ * Calls coming at the same millisecond keep their order.
+ */
+public final class CallRecorder implements Closeable {
+  static final String HALL = "HALL";
+  static final String CAR = "CAR";
+  static final String DEST = "DEST";
+
+  private final Writer writer;
+  private final Clock clock;
+  private final long start;
+
+  /**
+   * @param writer where to write calls to
+   * @param clock  clock elevators run on
+   */
+  public CallRecorder(Writer writer, Clock clock) {
+    this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    this.clock = clock;
+    this.start = clock.millis();
+    write("# time, HALL, floor, direction or time, CAR, elevator, floor or time, DEST, floor, destination");
+  }
+
+  /**
+   * @param floor     floor where from elevator is called
+   * @param direction {@link LookScheduler#UP}, {@link LookScheduler#DOWN} or {@link LookScheduler#IDLE}
+   */
+  public synchronized void hallCall(int floor, int direction) {
+    write((clock.millis() - start) + "," + HALL + "," + floor + "," + direction);
+  }
+
+  /**
+   * @param elevatorIndex index of elevator in the bank
+   * @param floor         floor button pressed inside of elevator
+   */
+  public synchronized void carCall(int elevatorIndex, int floor) {
+    write((clock.millis() - start) + "," + CAR + "," + elevatorIndex + "," + floor);
+  }
+
+  /**
+   * @param floor       floor where from elevator is called
+   * @param destination floor to go to
+   */
+  public synchronized void destinationCall(int floor, int destination) {
+    write((clock.millis() - start) + "," + DEST + "," + floor + "," + destination);
+  }
+
+  public synchronized void flush() {
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+
+  private synchronized void write(String line) {
+    try {
+      writer.write(line);
+      writer.write(System.lineSeparator());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
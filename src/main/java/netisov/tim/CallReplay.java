@@ -0,0 +1,127 @@
+package netisov.tim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Repeats calls recorded by {@link CallRecorder} against a bank of elevators in simulated time,
+ * as fast as it can compute. Calls are submitted at their recorded times in the same order,
+ * so replaying the same record always gives the same events, which are written one per line
+ * to compare runs of two builds with {@link EventDiff}.
+ */
+public final class CallReplay {
+  private final ElevatorService service;
+  private final SimulationClock clock;
+  private final Consumer<String> events;
+  private long calls;
+  private long lineNumber;
+
+  /**
+   * @param service bank of elevators running on the clock, the same as in recorded run
+   * @param clock   simulation clock
+   * @param events  receives every event as a line of text
+   */
+  public CallReplay(ElevatorService service, SimulationClock clock, Consumer<String> events) {
+    this.service = service;
+    this.clock = clock;
+    this.events = events;
+    List<Elevator> elevators = service.getElevators();
+    for (int i = 0; i < elevators.size(); i++) {
+      int number = i + 1;
+      elevators.get(i).addPassFloorListener(floor -> event(number, ElevatorEvent.Type.PASS_FLOOR, floor));
+      elevators.get(i).addOpenDoorListener(floor -> event(number, ElevatorEvent.Type.OPEN_DOOR, floor));
+      elevators.get(i).addCloseDoorListener(floor -> event(number, ElevatorEvent.Type.CLOSE_DOOR, floor));
+    }
+    service.driveControllers(clock);
+  }
+
+  /**
+   * Replay recorded calls and run elevators until they have nothing to do.
+   *
+   * @param record recorded calls
+   * @return number of replayed calls
+   * @throws IllegalArgumentException if record is broken
+   */
+  public long replay(Reader record) {
+    BufferedReader reader = record instanceof BufferedReader ? (BufferedReader) record : new BufferedReader(record);
+    long start = clock.millis();
+    schedule(reader, start, readCall(reader));
+    clock.run();
+    return calls;
+  }
+
+  private void schedule(BufferedReader reader, long start, String[] call) {
+    if (call == null) {
+      return;
+    }
+    long line = lineNumber;
+    long time = Long.parseLong(call[0]);
+    clock.scheduleAt(start + time, () -> {
+      submit(call, line);
+      // calls of the same millisecond are submitted before elevators take any of them, as they were recorded
+      String[] next;
+      while ((next = readCall(reader)) != null && Long.parseLong(next[0]) == time) {
+        submit(next, lineNumber);
+      }
+      schedule(reader, start, next);
+    });
+  }
+
+  private void submit(String[] call, long line) {
+    calls++;
+    int first = Integer.parseInt(call[2]);
+    int second = Integer.parseInt(call[3]);
+    if (CallRecorder.HALL.equals(call[1])) {
+      int elevator = service.submitCall(first, second);
+      events.accept(clock.millis() + " " + (elevator + 1) + " " + ElevatorEvent.Type.CALL_ACCEPTED + " " + first + " " + second);
+    } else if (CallRecorder.CAR.equals(call[1])) {
+      service.submitCarCall(first, second);
+      events.accept(clock.millis() + " " + (first + 1) + " " + ElevatorEvent.Type.CALL_ACCEPTED + " " + second);
+    } else if (CallRecorder.DEST.equals(call[1])) {
+      // elevator is chosen when batching window closes, its events show it
+      try {
+        service.submitDestinationCall(first, second);
+      } catch (IllegalStateException e) {
+        throw new IllegalArgumentException("Destination call at line " + line + " needs destination dispatch on");
+      }
+    } else {
+      throw new IllegalArgumentException("Unknown call " + call[1] + " at line " + line);
+    }
+  }
+
+  private String[] readCall(BufferedReader reader) {
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("[,\\s]+");
+        if (fields.length != 4) {
+          throw new IllegalArgumentException("Expected time, kind of call and two numbers at line " + lineNumber + ": " + line);
+        }
+        try {
+          Long.parseLong(fields[0]);
+          Integer.parseInt(fields[2]);
+          Integer.parseInt(fields[3]);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Wrong number at line " + lineNumber + ": " + line);
+        }
+        return fields;
+      }
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void event(int elevator, ElevatorEvent.Type type, int floor) {
+    events.accept(clock.millis() + " " + elevator + " " + type + " " + floor);
+  }
+}
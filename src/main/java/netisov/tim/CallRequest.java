@@ -0,0 +1,62 @@
+package netisov.tim;
+
+/**
+ * A call for elevator to stop at a floor.
+ */
+public final class CallRequest {
+
+  /**
+   * Where the call comes from.
+   */
+  public enum Type {
+    /**
+     * Button pressed on a floor.
+     */
+    HALL,
+    /**
+     * Button pressed inside of elevator.
+     */
+    CAR,
+    /**
+     * Idle elevator is sent to wait at the floor, it doesn't open door there.
+     */
+    PARK
+  }
+
+  private final Type type;
+  private final int floor;
+  private final int direction;
+
+  public CallRequest(Type type, int floor) {
+    this(type, floor, LookScheduler.IDLE);
+  }
+
+  /**
+   * @param type      where the call comes from
+   * @param floor     floor to stop at
+   * @param direction where people want to go from floor, {@link LookScheduler#UP}, {@link LookScheduler#DOWN}
+   *                  or {@link LookScheduler#IDLE} if it's unknown
+   */
+  public CallRequest(Type type, int floor, int direction) {
+    this.type = type;
+    this.floor = floor;
+    this.direction = direction;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getFloor() {
+    return floor;
+  }
+
+  public int getDirection() {
+    return direction;
+  }
+
+  @Override
+  public String toString() {
+    return type + " call " + floor;
+  }
+}
@@ -0,0 +1,349 @@
+package netisov.tim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Runs banks of elevators of many buildings in one process. Buildings are spread over
+ * a fixed number of shards, each shard is an event loop thread which owns its buildings:
+ * it drives their controllers by a clock of its own, delivers their events and executes
+ * everything submitted to them, so state of elevators is touched by one thread only
+ * and nothing is locked. Buildings of different shards don't share anything,
+ * so throughput grows with number of shards up to number of cores.
+ */
+public final class CampusHost implements AutoCloseable {
+  private final Shard[] shards;
+  private final Map<String, Building> buildings = new LinkedHashMap<>();
+
+  private static final class Building {
+    private final Shard shard;
+    private final ElevatorService service;
+
+    Building(Shard shard, ElevatorService service) {
+      this.shard = shard;
+      this.service = service;
+    }
+  }
+
+  /**
+   * Host with a shard per available processor.
+   */
+  public CampusHost() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param numShards number of event loop threads
+   */
+  public CampusHost(int numShards) {
+    if (numShards <= 0) {
+      throw new IllegalArgumentException("Number of shards should be positive: " + numShards);
+    }
+    shards = new Shard[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shards[i] = new Shard(i);
+    }
+  }
+
+  /**
+   * Add a building with elevators of the same kind, it goes to the shard with the least elevators.
+   *
+   * @param name         unique name of building
+   * @param numElevators number of elevators
+   * @param speed        meters per second
+   * @param floorHeight  height of a floor in meters
+   * @param doorTimeout  timeout opening/closing door in seconds
+   * @param servedFloors floors elevators stop at, null to stop at any floor
+   * @return index of shard the building runs on
+   */
+  public int addBuilding(String name, int numElevators, int speed, int floorHeight, int doorTimeout,
+                         ServedFloors servedFloors) {
+    Shard shard;
+    synchronized (this) {
+      if (buildings.containsKey(name)) {
+        throw new IllegalArgumentException("Building " + name + " already exists");
+      }
+      shard = shards[0];
+      for (Shard s : shards) {
+        if (s.elevators < shard.elevators) {
+          shard = s;
+        }
+      }
+      shard.elevators += numElevators;
+      buildings.put(name, new Building(shard, null));
+    }
+    Shard owner = shard;
+    ElevatorService service;
+    try {
+      service = owner.call(() -> {
+        ElevatorService created = new ElevatorService();
+        created.deliverEventsOn(Thread.currentThread());
+        created.setConsoleOutput(false);
+        created.createElevators(numElevators, speed, floorHeight, doorTimeout, owner.clock, servedFloors);
+        created.driveControllers(owner.clock);
+        owner.services.add(created);
+        return created;
+      }).join();
+    } catch (RuntimeException | Error e) {
+      // building isn't there, its name and elevators are free again
+      synchronized (this) {
+        buildings.remove(name);
+        owner.elevators -= numElevators;
+      }
+      throw e;
+    }
+    synchronized (this) {
+      buildings.put(name, new Building(owner, service));
+    }
+    return owner.index;
+  }
+
+  /**
+   * Do something with bank of a building on its shard thread, like subscribe to its events
+   * or change its dispatcher. Action should not block.
+   *
+   * @param name   name of building
+   * @param action what to do with the bank
+   * @param <T>    result of action
+   * @return result completed on shard thread
+   */
+  public <T> CompletableFuture<T> call(String name, Function<ElevatorService, T> action) {
+    Building building = building(name);
+    return building.shard.call(() -> action.apply(building.service));
+  }
+
+  /**
+   * Submit a call from a floor of a building.
+   *
+   * @param name      name of building
+   * @param floor     floor where from elevator is called
+   * @param direction {@link LookScheduler#UP}, {@link LookScheduler#DOWN} or {@link LookScheduler#IDLE} if unknown
+   * @return index of elevator which is going to serve the call
+   */
+  public CompletableFuture<Integer> submitCall(String name, int floor, int direction) {
+    return call(name, service -> service.submitCall(floor, direction));
+  }
+
+  /**
+   * Submit pressed button inside of elevator of a building.
+   *
+   * @param name          name of building
+   * @param elevatorIndex index of elevator in its bank
+   * @param floor         floor to go to
+   * @return completed when the call is taken by shard
+   */
+  public CompletableFuture<Void> submitCarCall(String name, int elevatorIndex, int floor) {
+    return call(name, service -> {
+      service.submitCarCall(elevatorIndex, floor);
+      return null;
+    });
+  }
+
+  /**
+   * @param name name of building
+   * @return index of shard the building runs on
+   */
+  public int getShard(String name) {
+    return building(name).shard.index;
+  }
+
+  /**
+   * @return names of buildings in order they're added
+   */
+  public synchronized Set<String> getBuildings() {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(buildings.keySet()));
+  }
+
+  /**
+   * @return number of shards
+   */
+  public int getNumShards() {
+    return shards.length;
+  }
+
+  /**
+   * Stop shard threads and banks of all buildings,
+   * if interrupted while waiting for them the threads are told to stop and interrupt is kept.
+   */
+  @Override
+  public void close() {
+    for (Shard shard : shards) {
+      shard.stop();
+    }
+    try {
+      for (Shard shard : shards) {
+        shard.thread.join();
+      }
+      for (Shard shard : shards) {
+        for (ElevatorService service : shard.services) {
+          service.shutdown();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized Building building(String name) {
+    Building building = buildings.get(name);
+    if (building == null || building.service == null) {
+      throw new IllegalArgumentException("There is no building " + name);
+    }
+    return building;
+  }
+
+  /**
+   * Something submitted to a shard along with its result.
+   */
+  private static final class Task<T> {
+    private final Callable<T> callable;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    Task(Callable<T> callable) {
+      this.callable = callable;
+    }
+
+    void run() {
+      try {
+        result.complete(callable.call());
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      } catch (Error e) {
+        result.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    void fail(Throwable cause) {
+      result.completeExceptionally(cause);
+    }
+  }
+
+  /**
+   * Event loop of a shard: takes submitted tasks, moves its clock along with real time
+   * firing steps of controllers which are due and delivers events of its buildings.
+   * A failing event or listener is reported and the loop goes on, if the loop itself fails
+   * the shard stops and everything submitted to it fails.
+   */
+  private static final class Shard implements Runnable {
+    private final int index;
+    private final Queue<Task<?>> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private final long startNanos = System.nanoTime();
+    // clock starts at local time, so time of day of elevators is real
+    private final SimulationClock clock;
+    // owned by shard thread
+    private final List<ElevatorService> services = new ArrayList<>();
+    // guarded by host
+    private int elevators;
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+
+    Shard(int index) {
+      this.index = index;
+      long now = System.currentTimeMillis();
+      this.clock = new SimulationClock(now + TimeZone.getDefault().getOffset(now));
+      this.thread = new Thread(this, "campus-shard-" + index);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    <T> CompletableFuture<T> call(Callable<T> callable) {
+      Task<T> task = new Task<>(callable);
+      tasks.offer(task);
+      if (running) {
+        LockSupport.unpark(thread);
+      } else {
+        // shard has stopped or is stopping, it may not take tasks anymore
+        failTasks();
+      }
+      return task.result;
+    }
+
+    @Override
+    public void run() {
+      try {
+        loop();
+      } catch (Throwable e) {
+        failure = e;
+        running = false;
+        System.err.printf("Shard %d failed, its buildings are stopped: %s%s", index, e, System.lineSeparator());
+      }
+      if (failure == null) {
+        Task<?> task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+      }
+      failTasks();
+    }
+
+    private void loop() {
+      long start = clock.millis();
+      while (running) {
+        Task<?> task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+        long now = start + (System.nanoTime() - startNanos) / 1_000_000;
+        advanceTo(now);
+        for (ElevatorService service : services) {
+          try {
+            service.drainEvents();
+          } catch (RuntimeException e) {
+            System.err.printf("Shard %d failed to deliver events: %s%s", index, e, System.lineSeparator());
+          }
+        }
+        if (tasks.isEmpty()) {
+          long next = clock.nextEventTime();
+          if (next == Long.MAX_VALUE) {
+            LockSupport.park(this);
+          } else if (next > now) {
+            LockSupport.parkNanos(this, (next - now) * 1_000_000);
+          }
+        }
+      }
+    }
+
+    /**
+     * Fire events due until given time, an event which fails is reported and the rest are fired.
+     */
+    private void advanceTo(long now) {
+      while (true) {
+        try {
+          clock.advanceTo(now);
+          return;
+        } catch (RuntimeException e) {
+          System.err.printf("Shard %d event failed: %s%s", index, e, System.lineSeparator());
+        }
+      }
+    }
+
+    private void failTasks() {
+      Throwable cause = failure;
+      IllegalStateException stopped = cause != null ? new IllegalStateException("Shard " + index + " has failed", cause)
+          : new IllegalStateException("Host is closed");
+      Task<?> task;
+      while ((task = tasks.poll()) != null) {
+        task.fail(stopped);
+      }
+    }
+
+    void stop() {
+      running = false;
+      LockSupport.unpark(thread);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package netisov.tim;
+
+/**
+ * How long elevator takes to get from floor to floor: it speeds up with limited
+ * acceleration and jerk, goes at its maximal speed if the trip is long enough
+ * and slows down the same way, so a trip of one floor costs much more than
+ * a tenth of a trip of ten floors. Every floor has the same height, so travel time
+ * depends only on the number of floors between two of them and is computed
+ * once for every distance in the building, estimating a trip is a lookup in a table.
+ * Immutable.
+ */
+public final class CarKinematics {
+  /**
+   * Acceleration of a usual passenger elevator in meters per second squared.
+   */
+  public static final double DEFAULT_ACCELERATION = 1.0;
+  /**
+   * Jerk of a usual passenger elevator in meters per second cubed.
+   */
+  public static final double DEFAULT_JERK = 1.5;
+  /**
+   * Number of floors travel time is computed in advance for if building size isn't known.
+   */
+  static final int DEFAULT_FLOORS = 128;
+
+  private final double maxSpeed;
+  private final double acceleration;
+  private final double jerk;
+  private final double floorHeight;
+  private final long doorMillis;
+  private final long[] travelMillis;
+  private final long stopMillis;
+
+  /**
+   * @param maxSpeed     meters per second
+   * @param acceleration meters per second squared
+   * @param jerk         meters per second cubed
+   * @param floorHeight  height of a floor in meters
+   * @param doorMillis   time to open or close door in milliseconds
+   * @param numFloors    number of floors in building
+   */
+  public CarKinematics(double maxSpeed, double acceleration, double jerk, double floorHeight,
+                       long doorMillis, int numFloors) {
+    if (maxSpeed <= 0 || acceleration <= 0 || jerk <= 0 || floorHeight <= 0) {
+      throw new IllegalArgumentException("Speed, acceleration, jerk and floor height should be positive");
+    }
+    if (doorMillis < 0 || numFloors <= 0) {
+      throw new IllegalArgumentException("Door time should not be negative, number of floors should be positive");
+    }
+    this.maxSpeed = maxSpeed;
+    this.acceleration = acceleration;
+    this.jerk = jerk;
+    this.floorHeight = floorHeight;
+    this.doorMillis = doorMillis;
+    this.travelMillis = new long[numFloors];
+    for (int floors = 1; floors < numFloors; floors++) {
+      travelMillis[floors] = Math.round(travelSeconds(floors * floorHeight) * 1000);
+    }
+    // stopping on the way costs door cycle and time lost slowing down and speeding up again
+    long cruiseMillis = Math.round(floorHeight / maxSpeed * 1000);
+    this.stopMillis = 2 * doorMillis + Math.max(0, travelMillis(1) - cruiseMillis);
+  }
+
+  /**
+   * Kinematics of usual elevator with given speed.
+   *
+   * @param speed       meters per second
+   * @param floorHeight height of a floor in meters
+   * @param doorTimeout timeout opening/closing door in seconds
+   * @param numFloors   number of floors in building
+   * @return kinematics with {@link #DEFAULT_ACCELERATION} and {@link #DEFAULT_JERK}
+   */
+  public static CarKinematics of(double speed, double floorHeight, int doorTimeout, int numFloors) {
+    return new CarKinematics(speed, DEFAULT_ACCELERATION, DEFAULT_JERK, floorHeight, doorTimeout * 1000L, numFloors);
+  }
+
+  /**
+   * Time to get from one floor to another without stopping on the way.
+   *
+   * @param from floor elevator starts at
+   * @param to   floor elevator stops at
+   * @return time in milliseconds
+   */
+  public long travelMillis(int from, int to) {
+    return travelMillis(Math.abs(to - from));
+  }
+
+  /**
+   * @param floors number of floors to go
+   * @return time in milliseconds to go that many floors without stopping
+   */
+  public long travelMillis(int floors) {
+    if (floors < travelMillis.length) {
+      return travelMillis[floors];
+    }
+    return Math.round(travelSeconds(floors * floorHeight) * 1000);
+  }
+
+  /**
+   * @return time in milliseconds a stop on the way adds to a trip
+   */
+  public long getStopMillis() {
+    return stopMillis;
+  }
+
+  /**
+   * @return time in milliseconds to open or close door
+   */
+  public long getDoorMillis() {
+    return doorMillis;
+  }
+
+  public double getMaxSpeed() {
+    return maxSpeed;
+  }
+
+  public double getAcceleration() {
+    return acceleration;
+  }
+
+  public double getJerk() {
+    return jerk;
+  }
+
+  /**
+   * Time to go a distance from standstill to standstill, speeding up and slowing down symmetrically.
+   * Speeding up to a speed takes either two phases of constant jerk, if acceleration doesn't reach
+   * its limit, or those phases with constant acceleration in between.
+   */
+  private double travelSeconds(double distance) {
+    if (distance <= 0) {
+      return 0;
+    }
+    double rampUp = accelerationSeconds(maxSpeed);
+    // average speed while speeding up is a half of the final one, so does slowing down
+    double rampDistance = maxSpeed * rampUp;
+    if (distance >= rampDistance) {
+      return 2 * rampUp + (distance - rampDistance) / maxSpeed;
+    }
+    // elevator starts slowing down before reaching its maximal speed
+    double peak;
+    double jerkTime = acceleration / jerk;
+    if (distance >= acceleration * acceleration / jerk * 2 * jerkTime) {
+      // peak * (peak / acceleration + jerkTime) = distance
+      peak = acceleration * (-jerkTime + Math.sqrt(jerkTime * jerkTime + 4 * distance / acceleration)) / 2;
+    } else {
+      // peak * 2 * sqrt(peak / jerk) = distance
+      peak = Math.cbrt(distance * distance * jerk / 4);
+    }
+    return 2 * accelerationSeconds(peak);
+  }
+
+  private double accelerationSeconds(double speed) {
+    if (speed >= acceleration * acceleration / jerk) {
+      return speed / acceleration + acceleration / jerk;
+    }
+    return 2 * Math.sqrt(speed / jerk);
+  }
+}
@@ -0,0 +1,142 @@
+package netisov.tim;
+
+/**
+ * People inside of elevator: their number kept in {@link ElevatorState}, their weight
+ * and how many of them elevator takes. People getting in or out are counted
+ * until door closes, so {@link DoorDwell} knows how long to keep it opened.
+ * Elevator full by number of people or by {@link #BYPASS_FRACTION} of its rated load
+ * passes calls from floors by and stops only where people inside go.
+ * Updated on the thread driving elevator, read from any thread.
+ */
+public final class CarLoad {
+  /**
+   * Weight of a passenger nobody weighs, kilograms.
+   */
+  public static final int AVERAGE_PASSENGER_KG = 75;
+  /**
+   * Part of rated load at which elevator stops taking calls from floors.
+   */
+  public static final double BYPASS_FRACTION = 0.8;
+
+  private final ElevatorState state;
+  private volatile int capacity = Elevator.UNLIMITED_CAPACITY;
+  private volatile int ratedLoad;
+  private volatile long weight;
+  // people got in or out since door opened, owned by the thread driving elevator
+  private int transfers;
+
+  CarLoad(ElevatorState state) {
+    this.state = state;
+  }
+
+  /**
+   * People of average weight get in.
+   *
+   * @param people number of people
+   */
+  public void board(int people) {
+    board(people, (long) people * AVERAGE_PASSENGER_KG);
+  }
+
+  /**
+   * @param people number of people getting in
+   * @param kg     their weight
+   */
+  public void board(int people, long kg) {
+    state.setLoad(state.getLoad() + people);
+    weight += kg;
+    transfers += people;
+  }
+
+  /**
+   * People of average weight get out.
+   *
+   * @param people number of people
+   */
+  public void alight(int people) {
+    alight(people, (long) people * AVERAGE_PASSENGER_KG);
+  }
+
+  /**
+   * @param people number of people getting out
+   * @param kg     their weight
+   */
+  public void alight(int people, long kg) {
+    state.setLoad(state.getLoad() - people);
+    weight = Math.max(0, weight - kg);
+    transfers += people;
+  }
+
+  /**
+   * @return number of people inside
+   */
+  public int getCount() {
+    return state.getLoad();
+  }
+
+  /**
+   * @return weight of people inside, kilograms
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  /**
+   * @return number of people elevator takes at most
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @param capacity number of people elevator takes at most
+   */
+  public void setCapacity(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return weight elevator is rated for in kilograms, 0 if it isn't weighed
+   */
+  public int getRatedLoad() {
+    return ratedLoad;
+  }
+
+  /**
+   * @param ratedLoad weight elevator is rated for in kilograms, 0 not to weigh people
+   */
+  public void setRatedLoad(int ratedLoad) {
+    if (ratedLoad < 0) {
+      throw new IllegalArgumentException("Rated load should not be negative: " + ratedLoad);
+    }
+    this.ratedLoad = ratedLoad;
+  }
+
+  /**
+   * @return true if one more person of average weight can get in
+   */
+  public boolean hasRoom() {
+    int rated = ratedLoad;
+    return state.getLoad() < capacity && (rated == 0 || weight + AVERAGE_PASSENGER_KG <= rated);
+  }
+
+  /**
+   * @return true if elevator should pass calls from floors by
+   */
+  public boolean isFull() {
+    int rated = ratedLoad;
+    return state.getLoad() >= capacity || (rated > 0 && weight >= rated * BYPASS_FRACTION);
+  }
+
+  /**
+   * @return number of people got in or out since the last call
+   */
+  int takeTransfers() {
+    int taken = transfers;
+    transfers = 0;
+    return taken;
+  }
+}
@@ -0,0 +1,88 @@
+package netisov.tim;
+
+/**
+ * State of one elevator and its controller at some moment: where it is
+ * and which requests it has, along with position in event journal the state corresponds to.
+ */
+public final class CarSnapshot {
+  private final int elevator;
+  private final int floor;
+  private final boolean doorOpened;
+  private final int direction;
+  private final long journalSequence;
+  private final int[] stops;
+  private final int[] upCalls;
+  private final int[] downCalls;
+
+  /**
+   * @param elevator        number of elevator in its bank
+   * @param floor           current floor
+   * @param doorOpened      true if door is opened
+   * @param direction       direction of travel
+   * @param journalSequence sequence of the first journal record which isn't taken into account, -1 if there is no journal
+   * @param stops           floors to stop at in any direction
+   * @param upCalls         floors called from to go up
+   * @param downCalls       floors called from to go down
+   */
+  public CarSnapshot(int elevator, int floor, boolean doorOpened, int direction, long journalSequence,
+                     int[] stops, int[] upCalls, int[] downCalls) {
+    this.elevator = elevator;
+    this.floor = floor;
+    this.doorOpened = doorOpened;
+    this.direction = direction;
+    this.journalSequence = journalSequence;
+    this.stops = stops;
+    this.upCalls = upCalls;
+    this.downCalls = downCalls;
+  }
+
+  /**
+   * @return number of elevator in its bank
+   */
+  public int getElevator() {
+    return elevator;
+  }
+
+  public int getFloor() {
+    return floor;
+  }
+
+  public boolean isDoorOpened() {
+    return doorOpened;
+  }
+
+  public int getDirection() {
+    return direction;
+  }
+
+  /**
+   * @return sequence of the first journal record which isn't taken into account, -1 if there is no journal
+   */
+  public long getJournalSequence() {
+    return journalSequence;
+  }
+
+  public int[] getStops() {
+    return stops.clone();
+  }
+
+  public int[] getUpCalls() {
+    return upCalls.clone();
+  }
+
+  public int[] getDownCalls() {
+    return downCalls.clone();
+  }
+
+  int[] stops() {
+    return stops;
+  }
+
+  int[] upCalls() {
+    return upCalls;
+  }
+
+  int[] downCalls() {
+    return downCalls;
+  }
+}
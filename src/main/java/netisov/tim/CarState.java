@@ -0,0 +1,95 @@
+package netisov.tim;
+
+/**
+ * Where an elevator is and what has just happened to it, as streamed by {@link CarStatePublisher}.
+ * Immutable, so subscribers can keep it.
+ */
+public final class CarState {
+  private final int elevator;
+  private final int floor;
+  private final boolean doorOpened;
+  private final ElevatorEvent.Type event;
+  private final int eventFloor;
+  private final long time;
+
+  /**
+   * @param elevator   number of elevator in its bank
+   * @param floor      floor elevator is at or has just passed
+   * @param doorOpened true if door is opened
+   * @param event      the latest event of elevator, null if nothing has happened yet
+   * @param eventFloor floor of the latest event, like the floor a call came from
+   * @param time       time of the latest event in milliseconds
+   */
+  public CarState(int elevator, int floor, boolean doorOpened, ElevatorEvent.Type event, int eventFloor, long time) {
+    this.elevator = elevator;
+    this.floor = floor;
+    this.doorOpened = doorOpened;
+    this.event = event;
+    this.eventFloor = eventFloor;
+    this.time = time;
+  }
+
+  /**
+   * State of elevator after an event.
+   *
+   * @param event what happened to elevator
+   * @return new state
+   */
+  CarState next(ElevatorEvent event) {
+    switch (event.getType()) {
+      case PASS_FLOOR:
+        return new CarState(elevator, event.getFloor(), false, event.getType(), event.getFloor(), event.getTime());
+      case OPEN_DOOR:
+        return new CarState(elevator, event.getFloor(), true, event.getType(), event.getFloor(), event.getTime());
+      case CLOSE_DOOR:
+        return new CarState(elevator, event.getFloor(), false, event.getType(), event.getFloor(), event.getTime());
+      default:
+        return new CarState(elevator, floor, doorOpened, event.getType(), event.getFloor(), event.getTime());
+    }
+  }
+
+  /**
+   * @return number of elevator in its bank
+   */
+  public int getElevator() {
+    return elevator;
+  }
+
+  /**
+   * @return floor elevator is at or has just passed
+   */
+  public int getFloor() {
+    return floor;
+  }
+
+  public boolean isDoorOpened() {
+    return doorOpened;
+  }
+
+  /**
+   * @return the latest event of elevator, null if nothing has happened to it yet
+   */
+  public ElevatorEvent.Type getEvent() {
+    return event;
+  }
+
+  /**
+   * @return floor of the latest event
+   */
+  public int getEventFloor() {
+    return eventFloor;
+  }
+
+  /**
+   * @return time of the latest event in milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return "elevator " + elevator + " floor " + floor + (doorOpened ? " opened" : "")
+        + (event != null ? " after " + event + " " + eventFloor + " at " + time : "");
+  }
+}
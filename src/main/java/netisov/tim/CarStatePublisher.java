@@ -0,0 +1,223 @@
+package netisov.tim;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams state of elevators to any number of subscribers, like lobby displays.
+ * It listens to {@link ElevatorEventBus}, so elevators never wait for subscribers,
+ * and hands every subscriber only as many states as it has requested.
+ * A subscriber which is behind gets just the latest state of each elevator: a newer state
+ * replaces the one it hasn't taken yet, so it holds at most one state per elevator
+ * whatever the rate of events. A new subscriber gets current state of every elevator first.
+ * States are delivered by tasks run on executor, each subscriber in order.
+ * Taking an event and subscribing hold the publisher for a moment, they don't wait for subscribers.
+ */
+public final class CarStatePublisher implements Flow.Publisher<CarState>, ElevatorEventListener, AutoCloseable {
+  private final Executor executor;
+  private final Map<Integer, CarState> latest = new ConcurrentHashMap<>();
+  private final List<CarSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final LongAdder conflated = new LongAdder();
+  private volatile boolean closed;
+
+  /**
+   * Publisher delivering states on common fork-join pool.
+   */
+  public CarStatePublisher() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param executor runs delivery to subscribers, shouldn't be the event bus thread
+   */
+  public CarStatePublisher(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super CarState> subscriber) {
+    CarSubscription subscription = new CarSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    if (closed) {
+      subscription.finish();
+      return;
+    }
+    // no event comes between current states and the subscription, so an older state never replaces a newer one
+    synchronized (this) {
+      subscriptions.add(subscription);
+      for (CarState state : latest.values()) {
+        subscription.offer(state);
+      }
+    }
+  }
+
+  /**
+   * Take the latest event of an elevator, called by event bus.
+   */
+  @Override
+  public synchronized void onEvent(ElevatorEvent event, boolean endOfBatch) {
+    CarState previous = latest.get(event.getElevator());
+    CarState state = previous != null ? previous.next(event)
+        : new CarState(event.getElevator(), event.getFloor(), event.getType() == ElevatorEvent.Type.OPEN_DOOR,
+        event.getType(), event.getFloor(), event.getTime());
+    latest.put(event.getElevator(), state);
+    for (CarSubscription subscription : subscriptions) {
+      subscription.offer(state);
+    }
+  }
+
+  /**
+   * Start streaming an elevator from its current state.
+   *
+   * @param number   number of elevator in its bank
+   * @param elevator elevator to stream
+   */
+  synchronized void add(int number, Elevator elevator) {
+    long state = elevator.getState().snapshot();
+    CarState initial = new CarState(number, ElevatorState.floor(state), ElevatorState.doorOpened(state), null,
+        ElevatorState.floor(state), elevator.getClock().millis());
+    latest.put(number, initial);
+    for (CarSubscription subscription : subscriptions) {
+      subscription.offer(initial);
+    }
+  }
+
+  /**
+   * @return number of subscribers
+   */
+  public int getSubscribers() {
+    return subscriptions.size();
+  }
+
+  /**
+   * @return number of states replaced by newer ones before subscribers took them
+   */
+  public long getConflated() {
+    return conflated.sum();
+  }
+
+  /**
+   * Complete every subscriber once it takes states it has been given.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (CarSubscription subscription : subscriptions) {
+      subscription.finish();
+    }
+  }
+
+  private final class CarSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super CarState> subscriber;
+    // one state per elevator, elevators with a state not taken yet are queued once
+    private final Map<Integer, CarState> pending = new ConcurrentHashMap<>();
+    private final Queue<Integer> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger work = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile boolean completing;
+    private volatile Throwable error;
+
+    CarSubscription(Flow.Subscriber<? super CarState> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    void offer(CarState state) {
+      if (cancelled) {
+        return;
+      }
+      if (pending.put(state.getElevator(), state) == null) {
+        ready.offer(state.getElevator());
+      } else {
+        conflated.increment();
+      }
+      if (requested.get() > 0) {
+        schedule();
+      }
+    }
+
+    void finish() {
+      completing = true;
+      schedule();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("Requested number of states should be positive: " + n);
+      } else {
+        requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+      pending.clear();
+    }
+
+    private void schedule() {
+      if (work.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    /**
+     * Deliver states while there is demand, only one thread runs it at a time.
+     */
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        try {
+          drain();
+        } catch (RuntimeException e) {
+          cancel();
+          System.err.printf("State subscriber failed: %s%s", e, System.lineSeparator());
+        }
+        missed = work.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      while (!cancelled) {
+        Throwable failure = error;
+        if (failure != null) {
+          cancel();
+          subscriber.onError(failure);
+          return;
+        }
+        if (ready.isEmpty()) {
+          if (completing) {
+            cancel();
+            subscriber.onComplete();
+          }
+          return;
+        }
+        if (requested.get() == 0) {
+          return;
+        }
+        Integer elevator = ready.poll();
+        CarState state = pending.remove(elevator);
+        if (state != null) {
+          if (requested.get() != Long.MAX_VALUE) {
+            requested.decrementAndGet();
+          }
+          subscriber.onNext(state);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package netisov.tim;
+
+/**
+ * Source of time for an elevator, so it can be run
+ * either in real time or in simulated time.
+ */
+public interface Clock {
+
+  /**
+   * Current time of the clock.
+   *
+   * @return milliseconds since clock epoch
+   */
+  long millis();
+
+  /**
+   * Let some time pass, elevator uses it while
+   * moving between floors and opening/closing door.
+   *
+   * @param millis time to wait in milliseconds
+   * @throws InterruptedException if waiting thread is interrupted
+   */
+  void sleep(long millis) throws InterruptedException;
+}
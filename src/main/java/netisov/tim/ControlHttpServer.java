@@ -0,0 +1,247 @@
+package netisov.tim;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Lets kiosk panels and other local clients drive a bank over HTTP on the loopback address,
+ * every request is handled on its own virtual thread, so a client waiting for elevator states
+ * costs a few kilobytes of memory rather than a platform thread.
+ * <ul>
+ * <li>POST /call?floor=3[&amp;direction=up|down] calls elevator, responds with number of elevator coming</li>
+ * <li>POST /call?floor=3&amp;destination=8 calls elevator in destination dispatch mode</li>
+ * <li>POST /goto?elevator=1&amp;floor=8 presses a button inside of elevator</li>
+ * <li>GET /state responds with a line per elevator: number, floor, opened or closed door and pending calls</li>
+ * <li>GET /subscribe streams states of elevators as server-sent events, a slow client gets the latest ones</li>
+ * </ul>
+ * Controllers of the bank should be started.
+ */
+public final class ControlHttpServer implements Closeable {
+  private static final int BACKLOG = 4096;
+
+  private final ElevatorService service;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Start serving the bank.
+   *
+   * @param service bank to control
+   * @param port    port to listen on, 0 for any free one
+   * @throws IOException if port can't be bound
+   */
+  public ControlHttpServer(ElevatorService service, int port) throws IOException {
+    this.service = service;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+    server.createContext("/call", handler("POST", this::call));
+    server.createContext("/goto", handler("POST", this::goTo));
+    server.createContext("/state", handler("GET", this::state));
+    server.createContext("/subscribe", handler("GET", this::subscribe));
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * @return port server listens on
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stop accepting requests, streams of states are closed.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private interface Endpoint {
+    void handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+  }
+
+  private HttpHandler handler(String method, Endpoint endpoint) {
+    return exchange -> {
+      try {
+        if (!method.equals(exchange.getRequestMethod())) {
+          exchange.sendResponseHeaders(405, -1);
+          return;
+        }
+        endpoint.handle(exchange, parameters(exchange.getRequestURI().getRawQuery()));
+      } catch (IllegalArgumentException e) {
+        respond(exchange, 400, e.getMessage());
+      } catch (IllegalStateException e) {
+        respond(exchange, 409, e.getMessage());
+      } finally {
+        exchange.close();
+      }
+    };
+  }
+
+  private void call(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+    int floor = intParameter(parameters, "floor");
+    if (parameters.containsKey("destination")) {
+      service.submitDestinationCall(floor, intParameter(parameters, "destination"));
+      respond(exchange, 202, "");
+      return;
+    }
+    int direction = direction(parameters.get("direction"));
+    int index = service.submitCall(floor, direction);
+    respond(exchange, 200, Integer.toString(index + 1));
+  }
+
+  private void goTo(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+    int elevator = intParameter(parameters, "elevator");
+    if (elevator < 1 || elevator > service.getControllers().size()) {
+      throw new IllegalArgumentException("There is no elevator " + elevator);
+    }
+    service.submitCarCall(elevator - 1, intParameter(parameters, "floor"));
+    respond(exchange, 202, "");
+  }
+
+  private void state(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+    StringBuilder body = new StringBuilder();
+    List<ElevatorController> controllers = service.getControllers();
+    for (int i = 0; i < controllers.size(); i++) {
+      ElevatorController controller = controllers.get(i);
+      long state = controller.getElevator().getState().snapshot();
+      body.append(i + 1).append(' ').append(ElevatorState.floor(state))
+          .append(ElevatorState.doorOpened(state) ? " opened " : " closed ")
+          .append(controller.getPendingCalls()).append('\n');
+    }
+    respond(exchange, 200, body.toString());
+  }
+
+  private void subscribe(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+    StateStream stream = new StateStream();
+    service.getStatePublisher().subscribe(stream);
+    exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+    exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+    exchange.sendResponseHeaders(200, 0);
+    try (OutputStream out = exchange.getResponseBody()) {
+      CarState state;
+      while ((state = stream.take()) != null) {
+        out.write(("data: " + state.getElevator() + ' ' + state.getFloor() + (state.isDoorOpened() ? " opened " : " closed ")
+            + state.getEvent() + ' ' + state.getEventFloor() + ' ' + state.getTime() + "\n\n")
+            .getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        stream.request();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      stream.cancel();
+    }
+  }
+
+  /**
+   * Takes one state at a time, the client thread blocks until publisher hands the next one.
+   */
+  private static final class StateStream implements Flow.Subscriber<CarState> {
+    private static final CarState END = new CarState(0, 0, false, null, 0, 0);
+    private final BlockingQueue<CarState> states = new LinkedBlockingQueue<>();
+    private volatile Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(1);
+    }
+
+    @Override
+    public void onNext(CarState item) {
+      states.offer(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      states.offer(END);
+    }
+
+    @Override
+    public void onComplete() {
+      states.offer(END);
+    }
+
+    CarState take() throws InterruptedException {
+      CarState state = states.take();
+      return state != END ? state : null;
+    }
+
+    void request() {
+      subscription.request(1);
+    }
+
+    void cancel() {
+      subscription.cancel();
+    }
+  }
+
+  private static int direction(String value) {
+    if (value == null) {
+      return LookScheduler.IDLE;
+    }
+    switch (value) {
+      case "up":
+        return LookScheduler.UP;
+      case "down":
+        return LookScheduler.DOWN;
+      default:
+        throw new IllegalArgumentException("Direction should be up or down: " + value);
+    }
+  }
+
+  private static int intParameter(Map<String, String> parameters, String name) {
+    String value = parameters.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing parameter " + name);
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Parameter " + name + " should be a number: " + value);
+    }
+  }
+
+  private static Map<String, String> parameters(String query) {
+    Map<String, String> parameters = new HashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0) {
+        parameters.put(pair.substring(0, equals), pair.substring(equals + 1));
+      }
+    }
+    return parameters;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] body = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+    if (body.length > 0) {
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+}
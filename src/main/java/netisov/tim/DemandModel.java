@@ -0,0 +1,102 @@
+package netisov.tim;
+
+/**
+ * Learns how often elevator is called from every floor at different times of day.
+ * A day is split into slots, every floor has a counter per slot which is increased by calls
+ * and fades exponentially with time, so old habits of a building are forgotten in a few
+ * half-lives. Counters are decayed lazily when they're touched, memory doesn't grow
+ * with number of calls. Not thread safe.
+ */
+public final class DemandModel {
+  public static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+  public static final int DEFAULT_SLOTS_PER_DAY = 96;
+  public static final long DEFAULT_HALF_LIFE_MILLIS = 7 * DAY_MILLIS;
+
+  private final BuildingTopology topology;
+  private final int slotsPerDay;
+  private final long slotMillis;
+  private final double decayPerMilli;
+  // counters of slot s are at [s * floors, (s + 1) * floors)
+  private final double[] counters;
+  private final long[] updated;
+
+  /**
+   * Model with 15 minute slots forgetting calls with half-life of a week.
+   *
+   * @param topology floors of building
+   */
+  public DemandModel(BuildingTopology topology) {
+    this(topology, DEFAULT_SLOTS_PER_DAY, DEFAULT_HALF_LIFE_MILLIS);
+  }
+
+  /**
+   * @param topology       floors of building
+   * @param slotsPerDay    number of parts a day is split into
+   * @param halfLifeMillis time in milliseconds a call loses half of its weight in
+   */
+  public DemandModel(BuildingTopology topology, int slotsPerDay, long halfLifeMillis) {
+    if (slotsPerDay <= 0 || halfLifeMillis <= 0) {
+      throw new IllegalArgumentException("Number of slots and half-life should be positive");
+    }
+    this.topology = topology;
+    this.slotsPerDay = slotsPerDay;
+    this.slotMillis = (DAY_MILLIS + slotsPerDay - 1) / slotsPerDay;
+    this.decayPerMilli = Math.log(2) / halfLifeMillis;
+    this.counters = new double[slotsPerDay * topology.getNumFloors()];
+    this.updated = new long[counters.length];
+  }
+
+  /**
+   * Somebody has called elevator.
+   *
+   * @param floor      floor where from elevator is called
+   * @param timeMillis time of call, milliseconds since midnight of the first day
+   */
+  public void record(int floor, long timeMillis) {
+    if (!topology.contains(floor)) {
+      return;
+    }
+    int cell = cell(slot(timeMillis), floor);
+    counters[cell] = decayed(cell, timeMillis) + 1;
+    updated[cell] = timeMillis;
+  }
+
+  /**
+   * Expected demand for a floor at some time: calls of its time slot and the next one
+   * which is coming soon, in proportion to time left till the end of the slot.
+   *
+   * @param floor      floor number
+   * @param timeMillis time, milliseconds since midnight of the first day
+   * @return weight of calls, 0 if nobody has called from the floor at this time of day
+   */
+  public double demand(int floor, long timeMillis) {
+    if (!topology.contains(floor)) {
+      return 0;
+    }
+    int slot = slot(timeMillis);
+    double passed = (double) Math.floorMod(timeMillis, slotMillis) / slotMillis;
+    return (1 - passed) * decayed(cell(slot, floor), timeMillis)
+        + passed * decayed(cell((slot + 1) % slotsPerDay, floor), timeMillis);
+  }
+
+  /**
+   * @return floors of building
+   */
+  public BuildingTopology getTopology() {
+    return topology;
+  }
+
+  private double decayed(int cell, long timeMillis) {
+    double counter = counters[cell];
+    long elapsed = timeMillis - updated[cell];
+    return counter == 0 || elapsed <= 0 ? counter : counter * Math.exp(-decayPerMilli * elapsed);
+  }
+
+  private int slot(long timeMillis) {
+    return (int) (Math.floorMod(timeMillis, DAY_MILLIS) / slotMillis);
+  }
+
+  private int cell(int slot, int floor) {
+    return slot * topology.getNumFloors() + topology.toIndex(floor);
+  }
+}
@@ -0,0 +1,234 @@
+package netisov.tim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Destination dispatch of a bank: people enter the floor they go to
+ * in the hall instead of pressing up or down. Calls coming within a batching window
+ * are assigned together, people going to the same floor in the same direction
+ * are sent to the same elevator as long as it has room, so elevators make fewer stops.
+ * When the assigned elevator opens its door on the floor people get in and
+ * their destinations become calls from inside of it, unless it leaves the other way.
+ * <p>
+ * Window of a bank running on {@link SimulationClock} is timed by the clock and calls
+ * should be submitted from the simulation thread, otherwise it's timed by a background thread.
+ */
+public final class DestinationDispatch implements AutoCloseable {
+  private final ElevatorService service;
+  private final long windowMillis;
+  private final List<Call> batch = new ArrayList<>();
+  // floor -> destinations of people waiting for each elevator
+  private final List<Map<Integer, List<Integer>>> waiting = new ArrayList<>();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder grouped = new LongAdder();
+  private ScheduledExecutorService timer;
+
+  private static final class Call {
+    private final int floor;
+    private final int destination;
+    private final int direction;
+    private final long time;
+
+    Call(int floor, int destination, long time) {
+      this.floor = floor;
+      this.destination = destination;
+      this.direction = Integer.signum(destination - floor);
+      this.time = time;
+    }
+  }
+
+  /**
+   * @param service      bank with all its elevators created
+   * @param windowMillis time calls are collected for before they're assigned, 0 to assign every call at once
+   */
+  DestinationDispatch(ElevatorService service, long windowMillis) {
+    if (windowMillis < 0) {
+      throw new IllegalArgumentException("Batching window should not be negative: " + windowMillis);
+    }
+    this.service = service;
+    this.windowMillis = windowMillis;
+    List<ElevatorController> controllers = service.getControllers();
+    for (int i = 0; i < controllers.size(); i++) {
+      Map<Integer, List<Integer>> destinations = new HashMap<>();
+      ElevatorController controller = controllers.get(i);
+      waiting.add(destinations);
+      controller.getElevator().addOpenDoorListener(floor -> board(controller, destinations, floor));
+      // door doesn't open again for people assigned to elevator standing opened on their floor
+      controller.addOpenDoorCallListener(floor -> board(controller, destinations, floor));
+    }
+  }
+
+  /**
+   * Somebody wants to go from one floor to another.
+   *
+   * @param floor       floor where from elevator is called
+   * @param destination floor to go to
+   * @throws IllegalArgumentException if no elevator stops at both floors
+   */
+  public void submit(int floor, int destination) {
+    if (floor == destination) {
+      return;
+    }
+    boolean served = false;
+    for (Elevator elevator : service.getElevators()) {
+      served |= elevator.serves(floor) && elevator.serves(destination);
+    }
+    if (!served) {
+      throw new IllegalArgumentException("No elevator goes from floor " + floor + " to " + destination);
+    }
+    calls.increment();
+    Clock clock = service.getElevators().get(0).getClock();
+    boolean opened;
+    synchronized (this) {
+      opened = batch.isEmpty();
+      batch.add(new Call(floor, destination, clock.millis()));
+    }
+    if (!opened) {
+      return;
+    }
+    if (windowMillis == 0) {
+      assignBatch();
+    } else if (clock instanceof SimulationClock) {
+      ((SimulationClock) clock).schedule(windowMillis, this::assignBatch);
+    } else {
+      timer().schedule(this::assignBatch, windowMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * @return number of batches assigned
+   */
+  public long getBatches() {
+    return batches.sum();
+  }
+
+  /**
+   * @return number of calls submitted
+   */
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  /**
+   * @return number of calls which joined an elevator already going to their destination in the same batch
+   */
+  public long getGrouped() {
+    return grouped.sum();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (timer != null) {
+      timer.shutdownNow();
+      timer = null;
+    }
+  }
+
+  private synchronized ScheduledExecutorService timer() {
+    if (timer == null) {
+      timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "elevator-destination-batch");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return timer;
+  }
+
+  private void assignBatch() {
+    List<Call> assigned;
+    synchronized (this) {
+      assigned = new ArrayList<>(batch);
+      batch.clear();
+    }
+    batches.increment();
+    assigned.sort(Comparator.<Call>comparingInt(c -> c.direction).thenComparingInt(c -> c.destination)
+        .thenComparingInt(c -> c.floor));
+    List<Elevator> elevators = service.getElevators();
+    List<ElevatorController> controllers = service.getControllers();
+    int[] assignedCalls = new int[controllers.size()];
+    for (int i = 0; i < assignedCalls.length; i++) {
+      assignedCalls[i] = controllers.get(i).getPendingCalls();
+    }
+    int[] load = new int[controllers.size()];
+    Map<Integer, Integer> groups = new HashMap<>();
+    for (Call call : assigned) {
+      int key = call.destination * 2 + (call.direction > 0 ? 1 : 0);
+      Integer index = groups.get(key);
+      if (index != null && (load[index] < elevators.get(index).getCapacity() && elevators.get(index).serves(call.floor))) {
+        grouped.increment();
+      } else {
+        index = choose(call, elevators, assignedCalls);
+        groups.put(key, index);
+        // the destination is a new stop for elevator
+        assignedCalls[index]++;
+      }
+      load[index]++;
+      boolean newStop;
+      synchronized (this) {
+        List<Integer> destinations = waiting.get(index).computeIfAbsent(call.floor, f -> new ArrayList<>());
+        newStop = destinations.isEmpty();
+        destinations.add(call.destination);
+      }
+      if (newStop) {
+        assignedCalls[index]++;
+      }
+      service.hallCallAssigned(index, call.floor, call.time);
+      controllers.get(index).submitHallCall(call.floor, call.direction);
+    }
+  }
+
+  private int choose(Call call, List<Elevator> elevators, int[] assignedCalls) {
+    int index = service.dispatch(call.floor, assignedCalls);
+    if (elevators.get(index).serves(call.destination)) {
+      return index;
+    }
+    // dispatcher knows only the floor, take the soonest of elevators going the whole way
+    long bestEta = Long.MAX_VALUE;
+    for (int i = 0; i < elevators.size(); i++) {
+      Elevator elevator = elevators.get(i);
+      if (elevator.serves(call.floor) && elevator.serves(call.destination)) {
+        long eta = EtaDispatcher.estimateArrival(elevator, call.floor, assignedCalls[i]);
+        if (eta < bestEta) {
+          index = i;
+          bestEta = eta;
+        }
+      }
+    }
+    return index;
+  }
+
+  private void board(ElevatorController controller, Map<Integer, List<Integer>> destinations, int floor) {
+    int direction = controller.getDepartureDirection();
+    List<Integer> boarding = new ArrayList<>();
+    synchronized (this) {
+      List<Integer> people = destinations.get(floor);
+      if (people == null) {
+        return;
+      }
+      // people going the other way wait, their call from the floor brings elevator back
+      people.removeIf(destination -> {
+        boolean in = direction == LookScheduler.IDLE || Integer.signum(destination - floor) == direction;
+        if (in) {
+          boarding.add(destination);
+        }
+        return in;
+      });
+      if (people.isEmpty()) {
+        destinations.remove(floor);
+      }
+    }
+    for (int destination : boarding) {
+      controller.submitCarCall(destination);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package netisov.tim;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Figures of dispatching calls to a bank of elevators:
+ * how long dispatcher takes to decide and how long people wait.
+ * Recording doesn't lock or allocate anything.
+ */
+public final class DispatchStatistics {
+  private final LongAdder dispatches = new LongAdder();
+  private final LongAdder dispatchNanos = new LongAdder();
+  private final LongAdder servedCalls = new LongAdder();
+  private final LongAdder waitMillis = new LongAdder();
+  private final AtomicLong maxWaitMillis = new AtomicLong();
+  private final AtomicHistogram dispatchLatency = new AtomicHistogram(1_000_000_000L);
+  private final AtomicHistogram waitTimes = new AtomicHistogram();
+
+  void recordDispatch(long nanos) {
+    dispatches.increment();
+    dispatchNanos.add(nanos);
+    dispatchLatency.record(nanos);
+  }
+
+  void recordWait(long millis) {
+    servedCalls.increment();
+    waitMillis.add(millis);
+    waitTimes.record(millis);
+    if (millis > maxWaitMillis.get()) {
+      maxWaitMillis.accumulateAndGet(millis, Math::max);
+    }
+  }
+
+  /**
+   * @return number of calls dispatched
+   */
+  public long getDispatchCount() {
+    return dispatches.sum();
+  }
+
+  /**
+   * @return average time dispatcher takes to choose an elevator, in nanoseconds
+   */
+  public double getAverageDispatchNanos() {
+    long count = dispatches.sum();
+    return count == 0 ? 0 : (double) dispatchNanos.sum() / count;
+  }
+
+  /**
+   * @return times dispatcher took to choose an elevator, in nanoseconds
+   */
+  public LatencyHistogram getDispatchLatency() {
+    return dispatchLatency.snapshot();
+  }
+
+  /**
+   * @return number of calls elevators arrived at
+   */
+  public long getServedCalls() {
+    return servedCalls.sum();
+  }
+
+  /**
+   * @return average time from call until door opens on the floor, in milliseconds
+   */
+  public double getAverageWaitMillis() {
+    long count = servedCalls.sum();
+    return count == 0 ? 0 : (double) waitMillis.sum() / count;
+  }
+
+  /**
+   * @return the longest wait, in milliseconds
+   */
+  public long getMaxWaitMillis() {
+    return maxWaitMillis.get();
+  }
+
+  /**
+   * @return times from call until door opens on the floor, in milliseconds
+   */
+  public LatencyHistogram getWaitTimes() {
+    return waitTimes.snapshot();
+  }
+}
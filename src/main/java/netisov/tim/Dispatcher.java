@@ -0,0 +1,19 @@
+package netisov.tim;
+
+import java.util.List;
+
+/**
+ * Strategy choosing which elevator of a bank serves a call from a floor.
+ */
+public interface Dispatcher {
+
+  /**
+   * Choose an elevator to serve a call.
+   *
+   * @param floor         floor where from elevator is called
+   * @param elevators     bank of elevators
+   * @param assignedCalls number of calls already assigned to each elevator in current batch
+   * @return index of chosen elevator in the bank
+   */
+  int dispatch(int floor, List<Elevator> elevators, int[] assignedCalls);
+}
@@ -0,0 +1,60 @@
+package netisov.tim;
+
+/**
+ * Time door of elevator stays opened at a stop including its closing, it depends on
+ * how many people get in or out: door closes soon when nobody does and waits for a crowd
+ * up to a limit. People are counted by {@link CarLoad}.
+ */
+public final class DoorDwell {
+  private final long minMillis;
+  private final long perPersonMillis;
+  private final long maxMillis;
+
+  /**
+   * @param minMillis       time when nobody gets in or out
+   * @param perPersonMillis time added by every person getting in or out
+   * @param maxMillis       the longest time door stays opened
+   */
+  public DoorDwell(long minMillis, long perPersonMillis, long maxMillis) {
+    if (minMillis < 0 || perPersonMillis < 0 || maxMillis < minMillis) {
+      throw new IllegalArgumentException("Dwell should be 0 <= " + minMillis + " <= " + maxMillis
+          + " with non-negative time per person " + perPersonMillis);
+    }
+    this.minMillis = minMillis;
+    this.perPersonMillis = perPersonMillis;
+    this.maxMillis = maxMillis;
+  }
+
+  /**
+   * Door stays opened for the same time whoever gets in.
+   *
+   * @param millis time door stays opened
+   * @return dwell
+   */
+  public static DoorDwell fixed(long millis) {
+    return new DoorDwell(millis, 0, millis);
+  }
+
+  /**
+   * @param transfers number of people got in or out
+   * @return time door stays opened in milliseconds
+   */
+  public long dwellMillis(int transfers) {
+    if (perPersonMillis == 0 || transfers <= 0) {
+      return minMillis;
+    }
+    return transfers > (maxMillis - minMillis) / perPersonMillis ? maxMillis : minMillis + transfers * perPersonMillis;
+  }
+
+  public long getMinMillis() {
+    return minMillis;
+  }
+
+  public long getPerPersonMillis() {
+    return perPersonMillis;
+  }
+
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+}
@@ -2,155 +2,231 @@ package netisov.tim;
 
 import lombok.Getter;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
-import java.util.function.IntFunction;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * Class representing an elevator.
  */
 public final class Elevator {
+  /**
+   * Capacity of elevator nobody counts people in.
+   */
+  public static final int UNLIMITED_CAPACITY = Integer.MAX_VALUE;
+
   @Getter
   private final ElevatorState state = new ElevatorState();
+  @Getter
   private final int millisecondsPerFloor;
+  @Getter
   private final int doorTimeout;
-  private List<Consumer<Integer>> passFloorListeners = new ArrayList<>();
-  private List<Consumer<Integer>> openDoorListeners = new ArrayList<>();
-  private List<Consumer<Integer>> closeDoorListeners = new ArrayList<>();
+  private final Clock clock;
+  private final ServedFloors servedFloors;
+  private final ElevatorMetrics metrics;
+  private final List<Consumer<Integer>> passFloorListeners = new CopyOnWriteArrayList<>();
+  private final List<Consumer<Integer>> openDoorListeners = new CopyOnWriteArrayList<>();
+  private final List<Consumer<Integer>> closeDoorListeners = new CopyOnWriteArrayList<>();
+  private volatile ElevatorEventBus eventBus;
+  private volatile EventJournal journal;
+  private volatile int number;
+  private final CarLoad load = new CarLoad(state);
+  private volatile DoorDwell doorDwell;
+  // time door stays opened at current stop, owned by the thread driving elevator
+  private long dwellMillis;
+  private volatile CarKinematics kinematics;
   private Supplier<Boolean> enterOnFloorObserve;
+  // trip made by blocking calls, stops added by its own thread join it
+  private volatile Route route;
 
 
   public Elevator(int speed, int floorHeight, int doorTimeout) {
+    this(speed, floorHeight, doorTimeout, RealTimeClock.INSTANCE);
+  }
+
+  /**
+   * Create an elevator running on particular clock,
+   * use {@link SimulationClock} to run it in simulated time.
+   *
+   * @param speed       meters per second
+   * @param floorHeight height of a floor in meters
+   * @param doorTimeout timeout opening/closing door in seconds
+   * @param clock       clock to measure time with
+   */
+  public Elevator(int speed, int floorHeight, int doorTimeout, Clock clock) {
+    this(speed, floorHeight, doorTimeout, clock, null);
+  }
+
+  /**
+   * Create an elevator stopping only at particular floors of a building,
+   * it starts from {@link ElevatorState#DEFAULT_FLOOR} or from the lowest served floor if it doesn't serve default one.
+   *
+   * @param speed        meters per second
+   * @param floorHeight  height of a floor in meters
+   * @param doorTimeout  timeout opening/closing door in seconds
+   * @param clock        clock to measure time with
+   * @param servedFloors floors elevator stops at, null to stop at any floor from 0 and up
+   */
+  public Elevator(int speed, int floorHeight, int doorTimeout, Clock clock, ServedFloors servedFloors) {
     this.millisecondsPerFloor = (int) Math.floor(((double) floorHeight / (double) speed) * 1000);
     this.doorTimeout = doorTimeout;
-
+    this.clock = clock;
+    this.servedFloors = servedFloors;
+    this.metrics = new ElevatorMetrics(clock);
+    this.doorDwell = DoorDwell.fixed(getDoorMillis());
+    this.dwellMillis = getDoorMillis();
+    this.kinematics = CarKinematics.of(speed, floorHeight, doorTimeout,
+        servedFloors != null ? servedFloors.getTopology().getNumFloors() : CarKinematics.DEFAULT_FLOORS);
+    if (servedFloors != null && !servedFloors.serves(state.getCurrentFloor())) {
+      state.setCurrentFloor(servedFloors.getLowestFloor());
+    }
   }
 
   /**
    * Elevator is called from floors
    * going for to get those people from troubles.
+   * Called while elevator is on its way, e.g. from the observer of arrival,
+   * the floors join the trip and the method returns at once.
    *
    * @param floors list of floors where from elevator is called.
    * @throws InterruptedException
    */
   public void callFrom(List<Integer> floors) throws InterruptedException {
-    int passedFloors = 0;
-    int initialFloorSize = floors.size();
-    if (floors.isEmpty()) {
-      return;
+    Route trip = route;
+    boolean joining = trip != null && trip.owner == Thread.currentThread();
+    if (!joining) {
+      trip = new Route(newScheduler(), newScheduler());
     }
-    floors = floors.stream().distinct().collect(Collectors.toList());
-    floors.sort(Comparator.naturalOrder());
-    while (passedFloors != initialFloorSize) {
-      Integer floor = findNearestFloor(state.getCurrentFloor(), floors.toArray(new Integer[floors.size()]));
-      goTo(floor);
-      passedFloors++;
-      floors.remove(floor);
-      openDoor();
-      if (enterOnFloorObserve != null && enterOnFloorObserve.get()) {
-        // user requested to get in elevator on floor
-        callFrom(floors);
-        break;
-      }
-      closeDoor();
+    for (int i = 0; i < floors.size(); i++) {
+      trip.hallCalls.add(checkServed(floors.get(i)));
+      callAccepted(floors.get(i), LookScheduler.IDLE);
+    }
+    if (!joining) {
+      travel(trip);
     }
-  }
-
-  /**
-   * Go to floors in particular order.
-   *
-   * @param floors
-   */
-  private void goToFloors(List<Integer> floors) {
-    floors.forEach(f -> {
-      goTo(f);
-      openDoor();
-      closeDoor();
-    });
   }
 
   /**
    * Someone pressed the buttons inside of elevator
-   * and we're going to get him where he wants
+   * and we're going to get him where he wants,
+   * elevator goes first in direction of the first pressed button.
+   * Pressed while elevator is on its way, e.g. from the observer of arrival,
+   * the floors are served before the rest of calls from floors and the method returns at once.
    *
    * @param floors
    */
   public void pressedFloorButtons(List<Integer> floors) {
-    floors = floors.stream().distinct().collect(Collectors.toList());
+    floors.forEach(this::checkServed);
+    int current = state.getCurrentFloor();
     if (state.isDoorOpened()) {
       closeDoor();
-    } else if (floors.contains(state.getCurrentFloor())) {
+    } else if (floors.contains(current)) {
       openDoor();
       closeDoor();
     }
-    floors.remove(state.getCurrentFloor());
-    if (floors.isEmpty()) {
-      return;
+    Route trip = route;
+    boolean joining = trip != null && trip.owner == Thread.currentThread();
+    if (!joining) {
+      trip = new Route(newScheduler(), newScheduler());
     }
-
-    int firstPressed = floors.get(0);
-    if (floors.size() == 1) {
-      goTo(firstPressed);
-      openDoor();
-      closeDoor();
+    boolean started = !trip.carCalls.isEmpty();
+    int firstPressed = LookScheduler.NONE;
+    for (int i = 0; i < floors.size(); i++) {
+      int floor = floors.get(i);
+      if (floor != current) {
+        trip.carCalls.add(floor);
+        callAccepted(floor, LookScheduler.IDLE);
+        firstPressed = firstPressed == LookScheduler.NONE ? floor : firstPressed;
+      }
+    }
+    if (firstPressed == LookScheduler.NONE) {
       return;
     }
+    if (!started) {
+      trip.carCalls.setDirection(firstPressed - current);
+    }
+    if (!joining) {
+      travel(trip);
+    }
+  }
 
+  /**
+   * Stops of a trip made by blocking calls. Buttons pressed inside of elevator are served
+   * before calls from floors, stops added on the way join their own tier only,
+   * so the rest of the trip isn't planned again and the stack doesn't grow however long it goes on.
+   */
+  private static final class Route {
+    private final Thread owner = Thread.currentThread();
+    private final LookScheduler carCalls;
+    private final LookScheduler hallCalls;
+    private LookScheduler planned;
+
+    Route(LookScheduler carCalls, LookScheduler hallCalls) {
+      this.carCalls = carCalls;
+      this.hallCalls = hallCalls;
+    }
 
-    floors.sort(Comparator.naturalOrder());
-    if (state.getCurrentFloor() > floors.get(floors.size() - 1)) {
-      floors.sort(Comparator.reverseOrder());
-      goToFloors(floors);
-    } else if (state.getCurrentFloor() < floors.get(0)) {
-      goToFloors(floors);
-    } else {
-      List<Integer> sub = floors.subList(-Collections.binarySearch(floors, state.getCurrentFloor()) - 1, floors.size());
-
-      List<Integer> upper = new ArrayList<>(sub);
-      sub.clear();
-
+    int next(int current) {
+      planned = carCalls;
+      int floor = carCalls.next(current);
+      if (floor == LookScheduler.NONE) {
+        planned = hallCalls;
+        floor = hallCalls.next(current);
+      }
+      return floor;
+    }
 
-      floors.sort(Comparator.reverseOrder());
+    /**
+     * @return true if somebody called elevator from the floor
+     */
+    boolean remove(int floor) {
+      carCalls.remove(floor);
+      int called = hallCalls.size();
+      hallCalls.remove(floor);
+      return hallCalls.size() < called;
+    }
 
-      Deque<Integer> upperDeque = new ArrayDeque<>(upper);
-      Deque<Integer> lowerDeque = new ArrayDeque<>(floors);
+    int getDirection() {
+      return planned.getDirection();
+    }
+  }
 
-      Deque<Integer> deque = new ArrayDeque<>();
-      if (lowerDeque.contains(firstPressed)) {
-        deque.addAll(lowerDeque);
-        deque.addAll(upperDeque);
-      } else {
-        deque.addAll(upperDeque);
-        deque.addAll(lowerDeque);
-      }
-      Integer floorToGo;
-      while ((floorToGo = deque.poll()) != null) {
-        goTo(floorToGo);
+  /**
+   * Go through stops of a trip until there are none, stops may be added on the way.
+   */
+  private void travel(Route trip) {
+    route = trip;
+    try {
+      int floor;
+      while ((floor = trip.next(state.getCurrentFloor())) != LookScheduler.NONE) {
+        goTo(floor);
+        boolean called = trip.remove(floor);
+        callServed(floor, trip.getDirection());
         openDoor();
-        closeDoor();
+        if (called && enterOnFloorObserve != null && enterOnFloorObserve.get()) {
+          // user requested to get in elevator on floor, the rest of calls are taken from where he leaves
+          trip.hallCalls.setDirection(LookScheduler.IDLE);
+        }
+        if (state.isDoorOpened()) {
+          closeDoor();
+        }
       }
+    } finally {
+      route = null;
     }
   }
 
-
   /**
    * Open door.
    */
   private void openDoor() {
     try {
-      Thread.sleep(doorTimeout * 1000);
+      clock.sleep(getDoorMillis());
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
-    state.setDoorOpened(true);
-    fireOpenDoorEvent(state.getCurrentFloor());
+    doorOpened();
   }
 
   /**
@@ -158,12 +234,11 @@ public final class Elevator {
    */
   private void closeDoor() {
     try {
-      Thread.sleep(doorTimeout * 1000);
+      clock.sleep(dwellMillis());
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
-    state.setDoorOpened(false);
-    fireCloseDoorEvent(state.getCurrentFloor());
+    doorClosed();
   }
 
   /**
@@ -172,18 +247,87 @@ public final class Elevator {
    * @param floor number.
    */
   private void goTo(int floor) {
-    IntFunction<Integer> operationResult = i -> floor < state.getCurrentFloor() ? --i : ++i;
+    int direction = floor < state.getCurrentFloor() ? LookScheduler.DOWN : LookScheduler.UP;
     while (state.getCurrentFloor() != floor) {
       try {
-        Thread.sleep(millisecondsPerFloor);
+        clock.sleep(millisecondsPerFloor);
       } catch (InterruptedException e) {
         throw new RuntimeException(e);
       }
-      firePassFloorEvent(state.getCurrentFloor());
-      state.setCurrentFloor(operationResult.apply(state.getCurrentFloor()));
+      passFloor(direction);
     }
   }
 
+  /**
+   * Door has been opened, time it takes is up to caller.
+   */
+  void doorOpened() {
+    metrics.doorOpened(getDoorMillis());
+    state.setDoorOpened(true);
+    fireOpenDoorEvent(state.getCurrentFloor());
+  }
+
+  /**
+   * Door has been closed, time it takes is up to caller.
+   */
+  void doorClosed() {
+    metrics.doorClosed(dwellMillis);
+    state.setDoorOpened(false);
+    fireCloseDoorEvent(state.getCurrentFloor());
+  }
+
+  /**
+   * Elevator has passed current floor and arrived at the next one,
+   * time it takes is up to caller.
+   *
+   * @param direction 1 to go up, -1 to go down
+   */
+  void passFloor(int direction) {
+    metrics.floorPassed(millisecondsPerFloor);
+    firePassFloorEvent(state.getCurrentFloor(), direction);
+    state.move(direction);
+  }
+
+  /**
+   * Elevator has taken a call, it's only recorded in events and metrics.
+   *
+   * @param floor     number
+   * @param direction direction of call from floor, {@link LookScheduler#IDLE} for any direction
+   */
+  void callAccepted(int floor, int direction) {
+    metrics.callAccepted();
+    publish(ElevatorEvent.Type.CALL_ACCEPTED, floor, direction);
+  }
+
+  /**
+   * Elevator has stopped for calls from the floor, it's only recorded in events and metrics.
+   *
+   * @param floor     number
+   * @param direction direction elevator was going in when it stopped
+   */
+  void callServed(int floor, int direction) {
+    metrics.callServed();
+    publish(ElevatorEvent.Type.CALL_SERVED, floor, direction);
+  }
+
+  /**
+   * @return time to open or close door in milliseconds
+   */
+  long getDoorMillis() {
+    return doorTimeout * 1000L;
+  }
+
+  /**
+   * Time door stays opened at current stop until it's closed,
+   * people got in or out since it opened are counted once.
+   *
+   * @return time in milliseconds
+   */
+  long dwellMillis() {
+    dwellMillis = doorDwell.dwellMillis(load.takeTransfers());
+    return dwellMillis;
+  }
+
   /**
    * Add listeners for passing floor event.
    *
@@ -196,9 +340,11 @@ public final class Elevator {
   /**
    * Fire passing floor event to listeners.
    *
-   * @param floor
+   * @param floor     floor elevator leaves
+   * @param direction direction it goes in
    */
-  private void firePassFloorEvent(int floor) {
+  private void firePassFloorEvent(int floor, int direction) {
+    publish(ElevatorEvent.Type.PASS_FLOOR, floor, direction);
     passFloorListeners.forEach(l -> l.accept(floor));
   }
 
@@ -218,6 +364,7 @@ public final class Elevator {
    * @param floor number
    */
   private void fireOpenDoorEvent(int floor) {
+    publish(ElevatorEvent.Type.OPEN_DOOR, floor, LookScheduler.IDLE);
     openDoorListeners.forEach(l -> l.accept(floor));
   }
 
@@ -236,39 +383,163 @@ public final class Elevator {
    * @param floor number
    */
   private void fireCloseDoorEvent(int floor) {
+    publish(ElevatorEvent.Type.CLOSE_DOOR, floor, LookScheduler.IDLE);
     closeDoorListeners.forEach(l -> l.accept(floor));
   }
 
   /**
-   * Help method to find nearest element in array.
+   * Send events of this elevator to a bus, its listeners
+   * are called on bus thread and don't hold elevator.
+   * Listeners added to elevator itself are still called on elevator thread.
+   *
+   * @param eventBus bus to publish to, null to stop publishing
+   * @param number   number of elevator in events
+   */
+  public void publishTo(ElevatorEventBus eventBus, int number) {
+    this.number = number;
+    this.eventBus = eventBus;
+  }
+
+  /**
+   * Write events of this elevator to a journal on elevator thread before
+   * they're published to bus or listeners are called.
    *
-   * @param value search value
-   * @param a     array to search in
-   * @return nearest value
+   * @param journal journal to write to, null to stop writing
+   * @param number  number of elevator in records
+   */
+  public void journalTo(EventJournal journal, int number) {
+    this.number = number;
+    this.journal = journal;
+  }
+
+  /**
+   * @return sequence the next record of journal is going to get, -1 if elevator isn't journaled
    */
-  private int findNearestFloor(int value, Integer[] a) {
-    if (value < a[0]) {
-      return a[0];
+  long getJournalSequence() {
+    EventJournal log = journal;
+    return log != null ? log.getNextSequence() : -1;
+  }
+
+  /**
+   * @return number of elevator in events
+   */
+  int getNumber() {
+    return number;
+  }
+
+  private void publish(ElevatorEvent.Type type, int floor, int direction) {
+    EventJournal log = journal;
+    ElevatorEventBus bus = eventBus;
+    if (log == null && bus == null) {
+      return;
+    }
+    long time = clock.millis();
+    if (log != null) {
+      log.append(type, number, floor, direction, time);
     }
-    if (value > a[a.length - 1]) {
-      return a[a.length - 1];
+    if (bus != null) {
+      bus.publish(type, number, floor, time);
     }
+  }
 
-    int lo = 0;
-    int hi = a.length - 1;
+  /**
+   * @param floor number
+   * @return true if elevator stops at the floor
+   */
+  public boolean serves(int floor) {
+    return servedFloors != null ? servedFloors.serves(floor) : floor >= 0;
+  }
 
-    while (lo <= hi) {
-      int mid = (hi + lo) / 2;
+  /**
+   * @return floors elevator stops at or null if it stops at any floor
+   */
+  public ServedFloors getServedFloors() {
+    return servedFloors;
+  }
 
-      if (value < a[mid]) {
-        hi = mid - 1;
-      } else if (value > a[mid]) {
-        lo = mid + 1;
-      } else {
-        return a[mid];
-      }
+  /**
+   * @return scheduler for floors of this elevator
+   */
+  LookScheduler newScheduler() {
+    return new LookScheduler(servedFloors != null ? servedFloors.getTopology().getLowestFloor() : 0);
+  }
+
+  /**
+   * @param floor number
+   * @return the same floor if elevator serves it
+   * @throws IllegalArgumentException if elevator doesn't stop at the floor
+   */
+  int checkServed(int floor) {
+    if (!serves(floor)) {
+      throw new IllegalArgumentException("Elevator doesn't stop at floor " + floor);
     }
-    return (a[lo] - value) < (value - a[hi]) ? a[lo] : a[hi];
+    return floor;
+  }
+
+  /**
+   * @return number of people elevator takes at most
+   */
+  public int getCapacity() {
+    return load.getCapacity();
+  }
+
+  /**
+   * @param capacity number of people elevator takes at most
+   */
+  public void setCapacity(int capacity) {
+    load.setCapacity(capacity);
+  }
+
+  /**
+   * @return people inside of elevator
+   */
+  public CarLoad getLoad() {
+    return load;
+  }
+
+  /**
+   * @return time door stays opened at stops
+   */
+  public DoorDwell getDoorDwell() {
+    return doorDwell;
+  }
+
+  /**
+   * @param doorDwell time door stays opened at stops, {@link DoorDwell#fixed(long)} with door timeout by default
+   */
+  public void setDoorDwell(DoorDwell doorDwell) {
+    this.doorDwell = doorDwell;
+  }
+
+  /**
+   * @return model of elevator's motion dispatchers estimate trips with
+   */
+  public CarKinematics getKinematics() {
+    return kinematics;
+  }
+
+  /**
+   * Estimate trips with another acceleration or jerk, elevator itself keeps moving
+   * one floor per {@link #getMillisecondsPerFloor()}.
+   *
+   * @param kinematics model of elevator's motion
+   */
+  public void setKinematics(CarKinematics kinematics) {
+    this.kinematics = kinematics;
+  }
+
+  /**
+   * @return counters of what elevator has done
+   */
+  public ElevatorMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return clock elevator is running on
+   */
+  public Clock getClock() {
+    return clock;
   }
 
   /**
@@ -11,12 +11,27 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.UnrecognizedOptionException;
 
+import javax.management.JMException;
+import java.io.BufferedWriter;
 import java.io.Console;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Supplier;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -26,9 +41,11 @@ public class ElevatorApp {
   private static final int DEFAULT_SPEED = 2;
   private static final int DEFAULT_FLOOR_HEIGHT = 4;
   private static final int DEFAULT_DOOR_TIMEOUT = 2;
-  public static final int MIN_NUM_FLOORS = 5;
-  public static final int MAX_NUM_FLOORS = 20;
+  public static final int MIN_NUM_FLOORS = 2;
+  public static final int MAX_NUM_FLOORS = 10_000;
   private static final int DEFAULT_NUM_FLOORS = 10;
+  private static final int DEFAULT_LOWEST_FLOOR = ElevatorState.DEFAULT_FLOOR;
+  private static final int DEFAULT_NUM_ELEVATORS = 1;
   private CommandLine cmdLine;
   private final Options options;
   private Option printHelpOption;
@@ -36,7 +53,20 @@ public class ElevatorApp {
   private Option floorHeightOption;
   private Option doorTimeoutOption;
   private Option numFloorsOption;
+  private Option lowestFloorOption;
+  private Option numElevatorsOption;
+  private Option dispatcherOption;
+  private Option traceOption;
+  private Option generateOption;
+  private Option capacityOption;
+  private Option journalOption;
+  private Option recordOption;
+  private Option replayOption;
+  private Option diffOption;
+  private Option metricsPortOption;
+  private Option apiPortOption;
   private Integer numFloors = DEFAULT_NUM_FLOORS;
+  private BuildingTopology topology;
   private volatile boolean finished;
   private final ElevatorService service;
   private Console console = System.console();
@@ -63,6 +93,11 @@ public class ElevatorApp {
       return 0;
     }
 
+    if (cmdLine.hasOption(getOptionKey(diffOption))) {
+      String[] files = cmdLine.getOptionValues(getOptionKey(diffOption));
+      return diffEvents(files[0], files[1]);
+    }
+
     Integer speed = getOptionValue(speedOption) != null ? Integer.parseInt(getOptionValue(speedOption)) : DEFAULT_SPEED;
     Integer floorHeight = getOptionValue(floorHeightOption) != null ? Integer.parseInt(getOptionValue(floorHeightOption)) : DEFAULT_FLOOR_HEIGHT;
     Integer doorTimeout = getOptionValue(doorTimeoutOption) != null ? Integer.parseInt(getOptionValue(doorTimeoutOption)) : DEFAULT_DOOR_TIMEOUT;
@@ -71,36 +106,257 @@ public class ElevatorApp {
       int numIntValue = Integer.parseInt(numFloorsValue);
       numFloors = numIntValue < MIN_NUM_FLOORS ? MIN_NUM_FLOORS : numIntValue > MAX_NUM_FLOORS ? MAX_NUM_FLOORS : numIntValue;
     }
-    service.createElevator(speed, floorHeight, doorTimeout);
+    int lowestFloor = getOptionValue(lowestFloorOption) != null ? Integer.parseInt(getOptionValue(lowestFloorOption)) : DEFAULT_LOWEST_FLOOR;
+    topology = new BuildingTopology(lowestFloor, lowestFloor + numFloors - 1);
+    int numElevators = getOptionValue(numElevatorsOption) != null ? Integer.parseInt(getOptionValue(numElevatorsOption)) : DEFAULT_NUM_ELEVATORS;
+    String traceValue = getOptionValue(traceOption);
+    String replayValue = getOptionValue(replayOption);
+    String[] generateValues = cmdLine.getOptionValues(getOptionKey(generateOption));
+    SimulationClock simulationClock = traceValue != null || replayValue != null || generateValues != null
+        ? new SimulationClock() : null;
+    if (simulationClock != null) {
+      // nobody watches events of a simulation, its elevators don't publish them
+      service.setConsoleOutput(false);
+    }
+    service.createElevators(Math.max(1, numElevators), speed, floorHeight, doorTimeout,
+        simulationClock != null ? simulationClock : RealTimeClock.INSTANCE, ServedFloors.all(topology));
+    if (getOptionValue(capacityOption) != null) {
+      int capacity = Integer.parseInt(getOptionValue(capacityOption));
+      service.getElevators().forEach(e -> e.setCapacity(capacity));
+    }
+    String journalValue = getOptionValue(journalOption);
+    if (journalValue != null && !openJournal(journalValue)) {
+      return 1;
+    }
+    String metricsPortValue = getOptionValue(metricsPortOption);
+    if (metricsPortValue != null && !exposeMetrics(Integer.parseInt(metricsPortValue))) {
+      return 1;
+    }
+    String dispatcherValue = getOptionValue(dispatcherOption);
+    if ("eta".equals(dispatcherValue)) {
+      service.setDispatcher(new EtaDispatcher());
+    } else if ("zoning".equals(dispatcherValue)) {
+      service.setDispatcher(new ZoningDispatcher(topology));
+    }
+    if (traceValue != null) {
+      return replayTrace(traceValue, simulationClock);
+    }
+    if (generateValues != null) {
+      return replayGenerated(generateValues, simulationClock);
+    }
+    if (replayValue != null) {
+      return replayCalls(replayValue, simulationClock);
+    }
+    String apiPortValue = getOptionValue(apiPortOption);
+    if (apiPortValue != null) {
+      return serveApi(Integer.parseInt(apiPortValue));
+    }
+    if (console == null) {
+      System.err.println("There is no console to talk to, use --trace option to replay traffic from a file "
+          + "or --api-port to control elevators over HTTP");
+      return 1;
+    }
 
 
     Runtime.getRuntime().addShutdownHook(new Thread(() -> finished = true));
+    String recordValue = getOptionValue(recordOption);
+    if (recordValue != null && !recordCalls(recordValue)) {
+      return 1;
+    }
 
 
+    // calls go through controllers, the same way they're replayed
     UserActions userActions = new UserActions();
+    service.startControllers();
+    while (!finished) {
+      service.flushEvents();
+      String choice = console.readLine("Enter c to call elevator or g to go to floors if you are inside or q to quit" + System.lineSeparator());
+      userActions.proceedUserAction(Action.getByShortcut(choice));
+    }
+
+    return 0;
+  }
+
+  /**
+   * Replay recorded traffic without user interaction and print figures of it.
+   *
+   * @param traceFile file with passengers
+   * @param clock     simulation clock elevators run on
+   * @return exit code
+   */
+  private int replayTrace(String traceFile, SimulationClock clock) {
+    try (TraceReader trace = new TraceReader(Files.newBufferedReader(Paths.get(traceFile)))) {
+      printReport(new TrafficReplay(service, clock).replay(trace));
+      return 0;
+    } catch (IOException | UncheckedIOException e) {
+      System.err.printf("Unable to read trace %s: %s%s", traceFile, e.getMessage(), System.lineSeparator());
+      return 1;
+    } catch (IllegalArgumentException e) {
+      System.err.printf("Wrong trace %s: %s%s", traceFile, e.getMessage(), System.lineSeparator());
+      return 1;
+    }
+  }
 
-    Supplier<Boolean> actionOnFloorArrival = () -> {
-      String response = console.readLine("Enter y if you want to get in elevator or n to make " +
-          "elevator continue its tour, default is n" + System.lineSeparator());
-      if ("y".equals(response)) {
+  /**
+   * Replay made up traffic without user interaction and print figures of it.
+   *
+   * @param values pattern of traffic, passengers per hour, number of passengers and seed
+   * @param clock  simulation clock elevators run on
+   * @return exit code
+   */
+  private int replayGenerated(String[] values, SimulationClock clock) {
+    try {
+      SyntheticTraffic traffic = SyntheticTraffic.builder()
+          .pattern(SyntheticTraffic.Pattern.valueOf(values[0].toUpperCase().replace('-', '_')))
+          .passengersPerHour(Double.parseDouble(values[1]))
+          .passengers(Long.parseLong(values[2]))
+          .build();
+      printReport(new TrafficReplay(service, clock).replay(traffic.passengers(Long.parseLong(values[3]), topology)));
+      return 0;
+    } catch (IllegalArgumentException e) {
+      System.err.printf("Wrong traffic %s: %s%s", String.join(" ", values), e.getMessage(), System.lineSeparator());
+      return 1;
+    }
+  }
+
+  private void printReport(ReplayReport report) {
+    System.out.println(report);
+    System.out.printf("Dispatch latency: average %.0f ns%s", service.getStatistics().getAverageDispatchNanos(),
+        System.lineSeparator());
+  }
+
+  /**
+   * Replay recorded calls and print events of elevators, one per line.
+   *
+   * @param recordFile file with recorded calls
+   * @param clock      simulation clock elevators run on
+   * @return exit code
+   */
+  private int replayCalls(String recordFile, SimulationClock clock) {
+    PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+    try (Reader record = Files.newBufferedReader(Paths.get(recordFile))) {
+      long start = System.nanoTime();
+      long calls = new CallReplay(service, clock, out::println).replay(record);
+      out.flush();
+      System.err.printf("Replayed %d calls of %.1f s in %.3f s%s", calls, clock.millis() / 1000.0,
+          (System.nanoTime() - start) / 1e9, System.lineSeparator());
+      return 0;
+    } catch (IOException | UncheckedIOException e) {
+      System.err.printf("Unable to read record %s: %s%s", recordFile, e.getMessage(), System.lineSeparator());
+      return 1;
+    } catch (IllegalArgumentException e) {
+      System.err.printf("Wrong record %s: %s%s", recordFile, e.getMessage(), System.lineSeparator());
+      return 1;
+    }
+  }
+
+  /**
+   * Record calls to a file, which is closed when app exits.
+   *
+   * @param recordFile file to write calls to
+   * @return false if file can't be created
+   */
+  private boolean recordCalls(String recordFile) {
+    try {
+      CallRecorder recorder = new CallRecorder(Files.newBufferedWriter(Paths.get(recordFile)), RealTimeClock.INSTANCE);
+      service.setCallRecorder(recorder);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
         try {
-          userActions.proceedUserAction(Action.GOTO_FLOORS);
-        } catch (InterruptedException e) {
-          return false;
+          recorder.close();
+        } catch (IOException e) {
+          System.err.printf("Unable to write record %s: %s%s", recordFile, e.getMessage(), System.lineSeparator());
         }
-        return true;
-      }
+      }));
+      return true;
+    } catch (IOException e) {
+      System.err.printf("Unable to create record %s: %s%s", recordFile, e.getMessage(), System.lineSeparator());
       return false;
-    };
-    service.setActionOnFloorArrival(actionOnFloorArrival);
-    while (!finished) {
-      String choice = console.readLine("Enter c to call elevator or g to go to floors if you are inside or q to quit" + System.lineSeparator());
-      userActions.proceedUserAction(Action.getByShortcut(choice));
     }
+  }
 
+  /**
+   * Compare events of two replays and print the first difference.
+   *
+   * @return exit code, 0 if events are the same
+   */
+  private int diffEvents(String expectedFile, String actualFile) {
+    try (Reader expected = Files.newBufferedReader(Paths.get(expectedFile));
+         Reader actual = Files.newBufferedReader(Paths.get(actualFile))) {
+      String difference = EventDiff.diff(expected, actual);
+      System.out.println(difference != null ? difference : "Events are the same");
+      return difference != null ? 1 : 0;
+    } catch (IOException e) {
+      System.err.printf("Unable to read events: %s%s", e.getMessage(), System.lineSeparator());
+      return 2;
+    }
+  }
+
+  /**
+   * Serve metrics over HTTP on local port and over JMX.
+   *
+   * @param port port to listen on
+   * @return false if metrics can't be served
+   */
+  private boolean exposeMetrics(int port) {
+    try {
+      MetricsHttpServer server = new MetricsHttpServer(service.getMetrics(), port);
+      service.getMetrics().registerMBean("netisov.tim:type=Elevators");
+      System.err.printf("Metrics are served at http://localhost:%d/metrics%s", server.getPort(), System.lineSeparator());
+      return true;
+    } catch (IOException | JMException e) {
+      System.err.printf("Unable to serve metrics: %s%s", e.getMessage(), System.lineSeparator());
+      return false;
+    }
+  }
+
+  /**
+   * Control elevators over HTTP instead of console until app is stopped.
+   *
+   * @param port local port to listen on
+   * @return exit code
+   * @throws InterruptedException if interrupted while serving
+   */
+  private int serveApi(int port) throws InterruptedException {
+    String recordValue = getOptionValue(recordOption);
+    if (recordValue != null && !recordCalls(recordValue)) {
+      return 1;
+    }
+    ControlHttpServer server;
+    try {
+      server = new ControlHttpServer(service, port);
+    } catch (IOException e) {
+      System.err.printf("Unable to serve control API: %s%s", e.getMessage(), System.lineSeparator());
+      return 1;
+    }
+    service.startControllers();
+    CountDownLatch stopped = new CountDownLatch(1);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      server.close();
+      stopped.countDown();
+    }));
+    System.err.printf("Elevators are controlled at http://localhost:%d/%s", server.getPort(), System.lineSeparator());
+    stopped.await();
     return 0;
   }
 
+  /**
+   * Write events of elevators to a journal, which is closed when app exits.
+   *
+   * @param directory directory of journal
+   * @return false if journal can't be opened
+   */
+  private boolean openJournal(String directory) {
+    try {
+      EventJournal journal = new EventJournal(Paths.get(directory));
+      service.setJournal(journal);
+      Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+      return true;
+    } catch (IOException e) {
+      System.err.printf("Unable to open journal %s: %s%s", directory, e.getMessage(), System.lineSeparator());
+      return false;
+    }
+  }
+
   /**
    * Representing user commands in cli
    */
@@ -131,6 +387,24 @@ public class ElevatorApp {
 
     String errorMessage = "Unable to get any floors, try once more time";
     String errorMessageFloors = "You entered wrong floor number, try once more time";
+    // elevator and floor of every door opening, put by controller threads
+    private final BlockingQueue<int[]> arrivals = new LinkedBlockingQueue<>();
+    // stops user waits for, true if elevator is called from the floor
+    private final Map<Long, Boolean> awaited = new HashMap<>();
+    private boolean waiting;
+    // elevator user is in, the first one until user gets in any
+    private int elevatorIndex;
+
+    UserActions() {
+      List<ElevatorController> controllers = service.getControllers();
+      for (int i = 0; i < controllers.size(); i++) {
+        int index = i;
+        Consumer<Integer> arrived = floor -> arrivals.offer(new int[]{index, floor});
+        controllers.get(i).getElevator().addOpenDoorListener(arrived);
+        // door doesn't open again for a call from the floor it's opened on
+        controllers.get(i).addOpenDoorCallListener(arrived);
+      }
+    }
 
     void proceedUserAction(Action action) throws InterruptedException {
       switch (action) {
@@ -140,11 +414,11 @@ public class ElevatorApp {
           if (floorsCall.isEmpty()) {
             System.out.println(errorMessage);
             proceedUserAction(Action.CALL_ELEVATOR);
-          } else if (floorsCall.stream().anyMatch(f -> f > numFloors || f <= 0)) {
+          } else if (floorsCall.stream().anyMatch(f -> !topology.contains(f))) {
             System.out.println(errorMessageFloors);
             proceedUserAction(Action.CALL_ELEVATOR);
           } else {
-            service.callElevator(floorsCall);
+            callElevator(floorsCall);
           }
           break;
         case GOTO_FLOORS:
@@ -153,11 +427,11 @@ public class ElevatorApp {
           if (floorsToGo.isEmpty()) {
             System.out.println(errorMessage);
             proceedUserAction(Action.GOTO_FLOORS);
-          } else if (floorsToGo.stream().anyMatch(f -> f > numFloors || f <= 0)) {
+          } else if (floorsToGo.stream().anyMatch(f -> !topology.contains(f))) {
             System.out.println(errorMessageFloors);
             proceedUserAction(Action.GOTO_FLOORS);
           } else {
-            service.elevatorGoTo(floorsToGo);
+            goTo(floorsToGo);
           }
           break;
         case QUIT:
@@ -168,6 +442,59 @@ public class ElevatorApp {
           System.out.println(errorMessage);
       }
     }
+
+    private void callElevator(List<Integer> floors) throws InterruptedException {
+      for (int floor : new LinkedHashSet<>(floors)) {
+        awaited.put(stop(service.submitCall(floor), floor), true);
+      }
+      await();
+    }
+
+    private void goTo(List<Integer> floors) throws InterruptedException {
+      int current = service.getElevators().get(elevatorIndex).getState().getCurrentFloor();
+      for (int floor : floors) {
+        service.submitCarCall(elevatorIndex, floor);
+        if (floor != current) {
+          awaited.putIfAbsent(stop(elevatorIndex, floor), false);
+        }
+      }
+      await();
+    }
+
+    /**
+     * Wait until elevators come to every stop user waits for, when one comes to a floor
+     * it's called from user is asked whether to get in. Floors chosen inside
+     * are waited for by the same loop.
+     */
+    private void await() throws InterruptedException {
+      if (waiting) {
+        return;
+      }
+      waiting = true;
+      try {
+        while (!awaited.isEmpty()) {
+          int[] arrival = arrivals.take();
+          if (!Boolean.TRUE.equals(awaited.remove(stop(arrival[0], arrival[1])))) {
+            continue;
+          }
+          service.flushEvents();
+          String response = console.readLine("Enter y if you want to get in elevator or n to make " +
+              "elevator continue its tour, default is n" + System.lineSeparator());
+          if ("y".equals(response)) {
+            elevatorIndex = arrival[0];
+            proceedUserAction(Action.GOTO_FLOORS);
+          }
+        }
+      } finally {
+        waiting = false;
+        awaited.clear();
+        arrivals.clear();
+      }
+    }
+
+    private long stop(int elevator, int floor) {
+      return (long) elevator << 32 | (floor & 0xffffffffL);
+    }
   }
 
 
@@ -274,13 +601,113 @@ public class ElevatorApp {
 
     //num floors option
     numFloorsOption = Option.builder("nf").longOpt("num-floors")
-        .desc("Number of floors (from 5 to 10), defaults to " + DEFAULT_DOOR_TIMEOUT + ", if entered too low value then " +
-            "5 is used, if entered too high value then 10 is used")
+        .desc("Number of floors (from " + MIN_NUM_FLOORS + " to " + MAX_NUM_FLOORS + "), defaults to " + DEFAULT_NUM_FLOORS
+            + ", if entered too low value then " + MIN_NUM_FLOORS + " is used, if entered too high value then "
+            + MAX_NUM_FLOORS + " is used")
         .hasArg()
         .build();
 
     opts.addOption(numFloorsOption);
 
+    //lowest floor option
+    lowestFloorOption = Option.builder("lf").longOpt("lowest-floor")
+        .desc("Number of the lowest floor, negative for basements, defaults to " + DEFAULT_LOWEST_FLOOR)
+        .hasArg()
+        .build();
+
+    opts.addOption(lowestFloorOption);
+
+    //num elevators option
+    numElevatorsOption = Option.builder("ne").longOpt("num-elevators")
+        .desc("Number of elevators in the bank, defaults to " + DEFAULT_NUM_ELEVATORS)
+        .hasArg()
+        .build();
+
+    opts.addOption(numElevatorsOption);
+
+    //dispatcher option
+    dispatcherOption = Option.builder("d").longOpt("dispatcher")
+        .desc("Way to choose elevator for a call: nearest, eta or zoning, defaults to nearest")
+        .hasArg()
+        .build();
+
+    opts.addOption(dispatcherOption);
+
+    //trace option
+    traceOption = Option.builder("t").longOpt("trace")
+        .desc("Replay passengers from file instead of asking user and print statistics, "
+            + "every line of file is time in milliseconds, origin floor and destination floor")
+        .hasArg()
+        .build();
+
+    opts.addOption(traceOption);
+
+    //generate option
+    generateOption = Option.builder("g").longOpt("generate")
+        .desc("Replay made up passengers instead of asking user and print statistics: pattern of traffic "
+            + "(up-peak, down-peak, lunch or inter-floor), passengers per hour, number of passengers and seed")
+        .numberOfArgs(4)
+        .build();
+
+    opts.addOption(generateOption);
+
+    //capacity option
+    capacityOption = Option.builder("c").longOpt("capacity")
+        .desc("Number of passengers an elevator takes at most during trace replay, unlimited by default")
+        .hasArg()
+        .build();
+
+    opts.addOption(capacityOption);
+
+    //journal option
+    journalOption = Option.builder("j").longOpt("journal")
+        .desc("Directory to write binary journal of elevator events to")
+        .hasArg()
+        .build();
+
+    opts.addOption(journalOption);
+
+    //record option
+    recordOption = Option.builder("r").longOpt("record")
+        .desc("File to record calls to, to replay them later")
+        .hasArg()
+        .build();
+
+    opts.addOption(recordOption);
+
+    //replay option
+    replayOption = Option.builder("rp").longOpt("replay")
+        .desc("Replay recorded calls in simulated time and print events of elevators, one per line")
+        .hasArg()
+        .build();
+
+    opts.addOption(replayOption);
+
+    //diff option
+    diffOption = Option.builder("df").longOpt("diff")
+        .desc("Compare events printed by two replays and print the first difference")
+        .numberOfArgs(2)
+        .build();
+
+    opts.addOption(diffOption);
+
+    //metrics port option
+    metricsPortOption = Option.builder("mp").longOpt("metrics-port")
+        .desc("Local port to serve metrics at /metrics over HTTP, they are also available over JMX")
+        .hasArg()
+        .build();
+
+    opts.addOption(metricsPortOption);
+
+    //api port option
+    apiPortOption = Option.builder("ap").longOpt("api-port")
+        .desc("Local port to control elevators over HTTP instead of console: "
+            + "POST /call, POST /goto, GET /state and GET /subscribe")
+        .hasArg()
+        .build();
+
+    opts.addOption(apiPortOption);
+
     return opts;
   }
 
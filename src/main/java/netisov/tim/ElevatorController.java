@@ -0,0 +1,421 @@
+package netisov.tim;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Drives one elevator by calls which can be submitted from any thread
+ * without blocking, calls are put in a lock-free queue and taken by
+ * controller loop, which chooses the next stop after each floor,
+ * so a call coming in the middle of a trip is taken into account at once.
+ * Stops are chosen by {@link LookScheduler}, calls from floors and from inside
+ * of elevator are served together on the way.
+ * <p>
+ * Controller either runs its own thread with {@link #start()} or is driven by
+ * events of a {@link SimulationClock} with {@link #drive(SimulationClock)},
+ * then calls must be submitted from the simulation thread.
+ */
+public final class ElevatorController {
+  private final Elevator elevator;
+  private final Queue<CallRequest> intake = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Queue<CompletableFuture<CarSnapshot>> snapshotRequests = new ConcurrentLinkedQueue<>();
+  private final List<Consumer<Integer>> openDoorCallListeners = new CopyOnWriteArrayList<>();
+  // owned by controller thread
+  private final LookScheduler scheduler;
+  private volatile Action pendingAction = Action.NONE;
+  private volatile int pendingStops;
+  private int parkingFloor = LookScheduler.NONE;
+  private volatile boolean running;
+  private volatile Thread thread;
+  private SimulationClock simulation;
+  private boolean stepScheduled;
+
+  private enum Action {
+    NONE, MOVE_UP, MOVE_DOWN, OPEN_DOOR, CLOSE_DOOR
+  }
+
+  public ElevatorController(Elevator elevator) {
+    this.elevator = elevator;
+    this.scheduler = elevator.newScheduler();
+  }
+
+  /**
+   * Submit a call, returns immediately.
+   *
+   * @param request call to serve
+   * @throws IllegalArgumentException if elevator doesn't stop at the floor
+   */
+  public void submit(CallRequest request) {
+    elevator.checkServed(request.getFloor());
+    intake.offer(request);
+    queued.incrementAndGet();
+    if (request.getType() != CallRequest.Type.PARK) {
+      elevator.getMetrics().callQueued();
+    }
+    if (simulation != null) {
+      if (!stepScheduled) {
+        scheduleStep(0);
+      }
+    } else {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Elevator is called from a floor.
+   *
+   * @param floor number
+   */
+  public void submitHallCall(int floor) {
+    submit(new CallRequest(CallRequest.Type.HALL, floor));
+  }
+
+  /**
+   * Elevator is called from a floor to go in particular direction.
+   *
+   * @param floor     number
+   * @param direction {@link LookScheduler#UP} or {@link LookScheduler#DOWN}
+   */
+  public void submitHallCall(int floor, int direction) {
+    submit(new CallRequest(CallRequest.Type.HALL, floor, direction));
+  }
+
+  /**
+   * A button is pressed inside of elevator.
+   *
+   * @param floor number
+   */
+  public void submitCarCall(int floor) {
+    submit(new CallRequest(CallRequest.Type.CAR, floor));
+  }
+
+  /**
+   * Send elevator to wait at a floor once it has nothing to do,
+   * any call coming before it gets there cancels parking.
+   *
+   * @param floor number
+   */
+  public void park(int floor) {
+    submit(new CallRequest(CallRequest.Type.PARK, floor));
+  }
+
+  /**
+   * Add listener of calls from floors served at once because door is opened on the floor
+   * when they come, such calls don't make elevator stop and open door again.
+   * Listener is called by controller thread.
+   *
+   * @param listener takes the floor
+   */
+  void addOpenDoorCallListener(Consumer<Integer> listener) {
+    openDoorCallListeners.add(listener);
+  }
+
+  /**
+   * Start controller loop in its own thread.
+   */
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this::runLoop, "elevator-controller");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stop controller loop and wait for it to finish.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized void stop() throws InterruptedException {
+    running = false;
+    Thread t = thread;
+    if (t != null) {
+      t.interrupt();
+      t.join();
+      thread = null;
+    }
+  }
+
+  /**
+   * Let simulation clock drive the controller, each step of elevator
+   * is an event scheduled on the clock.
+   *
+   * @param clock simulation clock, should be the one elevator runs on
+   */
+  public void drive(SimulationClock clock) {
+    this.simulation = clock;
+    if (!stepScheduled) {
+      scheduleStep(0);
+    }
+  }
+
+  /**
+   * @return number of calls waiting to be served
+   */
+  public int getPendingCalls() {
+    return queued.get() + pendingStops;
+  }
+
+  /**
+   * @return true if there is nothing to do for elevator
+   */
+  public boolean isIdle() {
+    return getPendingCalls() == 0 && pendingAction == Action.NONE && !elevator.getState().isDoorOpened();
+  }
+
+  /**
+   * Direction elevator is going to leave its floor in, calls submitted
+   * since the last step aren't taken into account.
+   * Should be called from elevator listeners, on the thread driving elevator.
+   *
+   * @return {@link LookScheduler#UP}, {@link LookScheduler#DOWN} or {@link LookScheduler#IDLE}
+   */
+  public int getDepartureDirection() {
+    return scheduler.departureDirection(elevator.getState().getCurrentFloor());
+  }
+
+  /**
+   * Take state of elevator and its requests between two steps, controller thread
+   * takes it if it's running, calls which are not taken by controller yet aren't included.
+   *
+   * @return snapshot
+   * @throws InterruptedException if interrupted while waiting for controller thread
+   */
+  public CarSnapshot snapshot() throws InterruptedException {
+    Thread t = thread;
+    if (t == null || t == Thread.currentThread()) {
+      return capture();
+    }
+    CompletableFuture<CarSnapshot> request = new CompletableFuture<>();
+    snapshotRequests.offer(request);
+    LockSupport.unpark(t);
+    while (true) {
+      try {
+        return request.get(10, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (!running) {
+          return capture();
+        }
+      } catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Bring elevator and its requests to the state of snapshot, controller should not be running.
+   *
+   * @param snapshot state to restore
+   */
+  public void restore(CarSnapshot snapshot) {
+    if (running) {
+      throw new IllegalStateException("Controller is running");
+    }
+    elevator.getState().setCurrentFloor(snapshot.getFloor());
+    elevator.getState().setDoorOpened(snapshot.isDoorOpened());
+    scheduler.clear();
+    for (int floor : snapshot.stops()) {
+      scheduler.add(floor);
+    }
+    for (int floor : snapshot.upCalls()) {
+      scheduler.addHallCall(floor, LookScheduler.UP);
+    }
+    for (int floor : snapshot.downCalls()) {
+      scheduler.addHallCall(floor, LookScheduler.DOWN);
+    }
+    scheduler.setDirection(snapshot.getDirection());
+    pendingAction = Action.NONE;
+    pendingStops = scheduler.size();
+  }
+
+  /**
+   * Repeat an event read from journal on restart, controller should not be running.
+   *
+   * @param type      kind of event
+   * @param floor     floor of event
+   * @param direction direction of event
+   */
+  void replay(ElevatorEvent.Type type, int floor, int direction) {
+    switch (type) {
+      case PASS_FLOOR:
+        elevator.getState().setCurrentFloor(floor + direction);
+        break;
+      case OPEN_DOOR:
+        elevator.getState().setCurrentFloor(floor);
+        elevator.getState().setDoorOpened(true);
+        break;
+      case CLOSE_DOOR:
+        elevator.getState().setDoorOpened(false);
+        break;
+      case CALL_ACCEPTED:
+        scheduler.addHallCall(floor, direction);
+        break;
+      case CALL_SERVED:
+        scheduler.setDirection(direction);
+        scheduler.remove(floor);
+        break;
+      default:
+    }
+    pendingStops = scheduler.size();
+  }
+
+  /**
+   * @return true if controller runs its thread or is driven by simulation clock
+   */
+  boolean isActive() {
+    return running || simulation != null;
+  }
+
+  public Elevator getElevator() {
+    return elevator;
+  }
+
+  /**
+   * Complete current action of elevator and plan the next one.
+   *
+   * @return time the next action takes in milliseconds or -1 if there is nothing to do
+   */
+  long step() {
+    if (pendingAction == Action.CLOSE_DOOR) {
+      // calls which came while door was opened on their floor are served by this stop
+      drainIntake();
+    }
+    complete();
+    drainIntake();
+    CompletableFuture<CarSnapshot> request;
+    while ((request = snapshotRequests.poll()) != null) {
+      request.complete(capture());
+    }
+    int current = elevator.getState().getCurrentFloor();
+    if (elevator.getState().isDoorOpened()) {
+      pendingAction = Action.CLOSE_DOOR;
+      return elevator.dwellMillis();
+    }
+    // full elevator takes people inside where they go first, calls from floors wait for it
+    int target = elevator.getLoad().isFull() ? scheduler.nextStop(current) : LookScheduler.NONE;
+    if (target == LookScheduler.NONE) {
+      target = scheduler.next(current);
+    }
+    if (target == LookScheduler.NONE) {
+      if (parkingFloor != LookScheduler.NONE && parkingFloor != current) {
+        pendingAction = parkingFloor > current ? Action.MOVE_UP : Action.MOVE_DOWN;
+        return elevator.getMillisecondsPerFloor();
+      }
+      parkingFloor = LookScheduler.NONE;
+      pendingAction = Action.NONE;
+      if (elevator.getState().getDirection() != LookScheduler.IDLE) {
+        elevator.getState().setDirection(LookScheduler.IDLE);
+      }
+      return -1;
+    }
+    if (target == current) {
+      pendingAction = Action.OPEN_DOOR;
+      scheduler.remove(target);
+      elevator.callServed(target, scheduler.getDirection());
+      pendingStops = scheduler.size();
+      return elevator.getDoorMillis();
+    }
+    pendingAction = target > current ? Action.MOVE_UP : Action.MOVE_DOWN;
+    return elevator.getMillisecondsPerFloor();
+  }
+
+  private void complete() {
+    Action action = pendingAction;
+    // action is done even if a listener fails in it
+    pendingAction = Action.NONE;
+    switch (action) {
+      case MOVE_UP:
+        elevator.passFloor(LookScheduler.UP);
+        break;
+      case MOVE_DOWN:
+        elevator.passFloor(LookScheduler.DOWN);
+        break;
+      case OPEN_DOOR:
+        elevator.doorOpened();
+        break;
+      case CLOSE_DOOR:
+        elevator.doorClosed();
+        break;
+      case NONE:
+      default:
+    }
+  }
+
+  private CarSnapshot capture() {
+    ElevatorState state = elevator.getState();
+    return new CarSnapshot(elevator.getNumber(), state.getCurrentFloor(), state.isDoorOpened(),
+        scheduler.getDirection(), elevator.getJournalSequence(),
+        scheduler.getStops(), scheduler.getUpCalls(), scheduler.getDownCalls());
+  }
+
+  private void drainIntake() {
+    int current = elevator.getState().getCurrentFloor();
+    CallRequest request;
+    while ((request = intake.poll()) != null) {
+      if (request.getType() == CallRequest.Type.PARK) {
+        parkingFloor = request.getFloor();
+      } else if (request.getFloor() != current || !elevator.getState().isDoorOpened()) {
+        // people are getting in or out right now if door is opened on the floor
+        parkingFloor = LookScheduler.NONE;
+        if (request.getType() == CallRequest.Type.HALL) {
+          scheduler.addHallCall(request.getFloor(), request.getDirection());
+          elevator.callAccepted(request.getFloor(), request.getDirection());
+        } else {
+          scheduler.add(request.getFloor());
+          elevator.callAccepted(request.getFloor(), LookScheduler.IDLE);
+        }
+        pendingStops = scheduler.size();
+      } else if (request.getType() == CallRequest.Type.HALL) {
+        int floor = request.getFloor();
+        openDoorCallListeners.forEach(l -> l.accept(floor));
+      }
+      queued.decrementAndGet();
+    }
+  }
+
+  private void runLoop() {
+    while (running) {
+      long delay = step();
+      try {
+        if (delay < 0) {
+          if (intake.isEmpty() && snapshotRequests.isEmpty()) {
+            LockSupport.park(this);
+          }
+        } else {
+          elevator.getClock().sleep(delay);
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void scheduleStep(long delay) {
+    stepScheduled = true;
+    simulation.schedule(delay, () -> {
+      // calls submitted by listeners during the step are taken by the step itself
+      long next = 0;
+      try {
+        next = step();
+      } finally {
+        // failed listener doesn't stop the car, it goes on right after the failure
+        stepScheduled = false;
+        if (next >= 0) {
+          scheduleStep(next);
+        }
+      }
+    });
+  }
+}
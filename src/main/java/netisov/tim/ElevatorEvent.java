@@ -0,0 +1,63 @@
+package netisov.tim;
+
+/**
+ * Something that happened to an elevator. Events are slots of {@link ElevatorEventBus}
+ * ring buffer and are reused, so listener should copy fields it needs to keep
+ * instead of keeping the event itself.
+ */
+public final class ElevatorEvent {
+
+  /**
+   * Kind of event, new kinds are added to the end, since they're written to {@link EventJournal} by ordinal.
+   */
+  public enum Type {
+    PASS_FLOOR, OPEN_DOOR, CLOSE_DOOR,
+    /**
+     * Elevator has taken a call from the floor.
+     */
+    CALL_ACCEPTED,
+    /**
+     * Elevator has stopped at the floor for calls from there.
+     */
+    CALL_SERVED
+  }
+
+  private Type type;
+  private int elevator;
+  private int floor;
+  private long time;
+
+  void set(Type type, int elevator, int floor, long time) {
+    this.type = type;
+    this.elevator = elevator;
+    this.floor = floor;
+    this.time = time;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return number of elevator in its bank
+   */
+  public int getElevator() {
+    return elevator;
+  }
+
+  public int getFloor() {
+    return floor;
+  }
+
+  /**
+   * @return time of elevator clock when event happened, in milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return type + " elevator " + elevator + " floor " + floor + " at " + time;
+  }
+}
@@ -0,0 +1,294 @@
+package netisov.tim;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands elevator events over to listeners running on a separate thread,
+ * so slow listeners don't delay elevators. Events are written into a ring buffer
+ * of preallocated slots by any number of elevators and delivered by one consumer
+ * thread in batches, which is started with {@link #start()}, or by a thread which owns elevators
+ * of the bus, see {@link #deliverOn(Thread)}. What happens when buffer
+ * is full is decided by {@link BackPressure}. Listeners can be added and removed at any time.
+ */
+public final class ElevatorEventBus implements AutoCloseable {
+  public static final int DEFAULT_CAPACITY = 1024;
+  private static final long IDLE_PARK_NANOS = 1_000_000;
+  private static final long FULL_PARK_NANOS = 1_000;
+
+  /**
+   * What publisher does when ring buffer is full.
+   */
+  public enum BackPressure {
+    /**
+     * Event is thrown away.
+     */
+    DROP,
+    /**
+     * Publisher waits until there is space for event.
+     */
+    BLOCK,
+    /**
+     * Passing floor events are merged into the latest position of elevator
+     * which is delivered as soon as consumer catches up or before the next event of elevator,
+     * door events wait for space.
+     */
+    COALESCE
+  }
+
+  private final ElevatorEvent[] slots;
+  private final AtomicLongArray published;
+  private final int mask;
+  private final BackPressure backPressure;
+  private final AtomicLong claimed = new AtomicLong(-1);
+  private final AtomicLong consumed = new AtomicLong(-1);
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final Map<Integer, long[]> latestPositions = new ConcurrentHashMap<>();
+  private final List<ElevatorEventListener> listeners = new CopyOnWriteArrayList<>();
+  private final ElevatorEvent coalescedEvent = new ElevatorEvent();
+  private volatile boolean running;
+  private volatile boolean sleeping;
+  private volatile Thread consumer;
+  private volatile Thread drainer;
+
+  public ElevatorEventBus() {
+    this(DEFAULT_CAPACITY, BackPressure.BLOCK);
+  }
+
+  /**
+   * @param capacity     size of ring buffer, rounded up to a power of two
+   * @param backPressure what to do when buffer is full
+   */
+  public ElevatorEventBus(int capacity, BackPressure backPressure) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.slots = new ElevatorEvent[size];
+    this.published = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      slots[i] = new ElevatorEvent();
+      published.set(i, -1);
+    }
+    this.mask = size - 1;
+    this.backPressure = backPressure;
+  }
+
+  /**
+   * Start consumer thread.
+   */
+  public synchronized void start() {
+    if (running || drainer != null) {
+      return;
+    }
+    running = true;
+    consumer = new Thread(this::consume, "elevator-event-bus");
+    consumer.setDaemon(true);
+    consumer.start();
+  }
+
+  /**
+   * Deliver events which are already published and stop consumer thread,
+   * if interrupted while waiting for it the thread stops on its own and interrupt is kept.
+   */
+  @Override
+  public synchronized void close() {
+    running = false;
+    Thread t = consumer;
+    if (t != null) {
+      LockSupport.unpark(t);
+      try {
+        t.join();
+        consumer = null;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Let a thread deliver events itself with {@link #drain()} instead of consumer thread,
+   * when buffer is full publishing on this thread delivers events instead of waiting.
+   *
+   * @param thread thread events are delivered on
+   */
+  synchronized void deliverOn(Thread thread) {
+    if (running) {
+      throw new IllegalStateException("Consumer thread is running");
+    }
+    drainer = thread;
+  }
+
+  /**
+   * Deliver events published so far on the thread set with {@link #deliverOn(Thread)}.
+   *
+   * @return number of events delivered
+   */
+  int drain() {
+    long next = consumed.get() + 1;
+    long available = next;
+    while (published.get((int) available & mask) == available) {
+      available++;
+    }
+    for (long sequence = next; sequence < available; sequence++) {
+      deliver(slots[(int) sequence & mask], sequence == available - 1 && latestPositions.isEmpty());
+    }
+    consumed.set(available - 1);
+    deliverLatestPositions();
+    return (int) (available - next);
+  }
+
+  public void subscribe(ElevatorEventListener listener) {
+    listeners.add(listener);
+  }
+
+  public void unsubscribe(ElevatorEventListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Publish an event, it doesn't allocate anything unless buffer is full.
+   *
+   * @param type     kind of event
+   * @param elevator number of elevator
+   * @param floor    floor number
+   * @param time     time of event in milliseconds
+   * @return false if event was dropped or merged because buffer is full
+   */
+  public boolean publish(ElevatorEvent.Type type, int elevator, int floor, long time) {
+    if (!latestPositions.isEmpty()) {
+      long[] position = latestPositions.remove(elevator);
+      if (position != null && type != ElevatorEvent.Type.PASS_FLOOR) {
+        // merged position of elevator goes before its later events, a later position just replaces it
+        put(ElevatorEvent.Type.PASS_FLOOR, elevator, (int) position[0], position[1], false);
+      }
+    }
+    return put(type, elevator, floor, time, true);
+  }
+
+  private boolean put(ElevatorEvent.Type type, int elevator, int floor, long time, boolean coalesce) {
+    long sequence;
+    while (true) {
+      long current = claimed.get();
+      sequence = current + 1;
+      if (sequence - consumed.get() > slots.length) {
+        if (backPressure == BackPressure.DROP) {
+          dropped.incrementAndGet();
+          return false;
+        }
+        if (backPressure == BackPressure.COALESCE && coalesce && type == ElevatorEvent.Type.PASS_FLOOR) {
+          latestPositions.put(elevator, new long[]{floor, time});
+          coalesced.incrementAndGet();
+          return false;
+        }
+        if (Thread.currentThread() == drainer) {
+          drain();
+        } else {
+          LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        continue;
+      }
+      if (claimed.compareAndSet(current, sequence)) {
+        break;
+      }
+    }
+    int index = (int) sequence & mask;
+    slots[index].set(type, elevator, floor, time);
+    published.set(index, sequence);
+    if (sleeping) {
+      LockSupport.unpark(consumer);
+    }
+    return true;
+  }
+
+  /**
+   * Wait until every event published so far is delivered to listeners.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void flush() throws InterruptedException {
+    if (Thread.currentThread() == drainer) {
+      drain();
+      return;
+    }
+    long target = claimed.get();
+    while (running && (consumed.get() < target || !latestPositions.isEmpty())) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+  }
+
+  /**
+   * @return number of events thrown away because buffer was full
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * @return number of passing floor events merged into the latest position because buffer was full
+   */
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  private void consume() {
+    long next = consumed.get() + 1;
+    while (true) {
+      long available = next;
+      while (published.get((int) available & mask) == available) {
+        available++;
+      }
+      if (available == next) {
+        if (deliverLatestPositions()) {
+          continue;
+        }
+        if (!running) {
+          return;
+        }
+        sleeping = true;
+        if (published.get((int) next & mask) != next) {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        sleeping = false;
+        continue;
+      }
+      for (long sequence = next; sequence < available; sequence++) {
+        deliver(slots[(int) sequence & mask], sequence == available - 1 && latestPositions.isEmpty());
+      }
+      consumed.set(available - 1);
+      next = available;
+      deliverLatestPositions();
+    }
+  }
+
+  private boolean deliverLatestPositions() {
+    if (latestPositions.isEmpty()) {
+      return false;
+    }
+    Iterator<Map.Entry<Integer, long[]>> iterator = latestPositions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Integer, long[]> position = iterator.next();
+      iterator.remove();
+      coalescedEvent.set(ElevatorEvent.Type.PASS_FLOOR, position.getKey(), (int) position.getValue()[0], position.getValue()[1]);
+      deliver(coalescedEvent, !iterator.hasNext());
+    }
+    return true;
+  }
+
+  private void deliver(ElevatorEvent event, boolean endOfBatch) {
+    for (ElevatorEventListener listener : listeners) {
+      try {
+        listener.onEvent(event, endOfBatch);
+      } catch (RuntimeException e) {
+        System.err.printf("Event listener failed on %s: %s%s", event, e, System.lineSeparator());
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package netisov.tim;
+
+/**
+ * Subscriber of {@link ElevatorEventBus}.
+ */
+public interface ElevatorEventListener {
+
+  /**
+   * Called on event bus thread for every event.
+   *
+   * @param event      event, valid only until method returns
+   * @param endOfBatch true if it's the last event available at the moment,
+   *                   a good time to flush whatever listener has buffered
+   */
+  void onEvent(ElevatorEvent event, boolean endOfBatch);
+}
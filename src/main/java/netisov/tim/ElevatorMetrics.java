@@ -0,0 +1,103 @@
+package netisov.tim;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what an elevator has done, updated by elevator itself
+ * without locks and allocation and read from any thread.
+ */
+public final class ElevatorMetrics {
+  private final Clock clock;
+  private final long startMillis;
+  private final LongAdder floorsTravelled = new LongAdder();
+  private final LongAdder doorCycles = new LongAdder();
+  private final LongAdder callsQueued = new LongAdder();
+  private final LongAdder callsAccepted = new LongAdder();
+  private final LongAdder callsServed = new LongAdder();
+  private final LongAdder movingMillis = new LongAdder();
+  private final LongAdder doorMillis = new LongAdder();
+
+  ElevatorMetrics(Clock clock) {
+    this.clock = clock;
+    this.startMillis = clock.millis();
+  }
+
+  void floorPassed(long millis) {
+    floorsTravelled.increment();
+    movingMillis.add(millis);
+  }
+
+  void doorOpened(long millis) {
+    doorCycles.increment();
+    doorMillis.add(millis);
+  }
+
+  void doorClosed(long millis) {
+    doorMillis.add(millis);
+  }
+
+  void callQueued() {
+    callsQueued.increment();
+  }
+
+  void callAccepted() {
+    callsAccepted.increment();
+  }
+
+  void callServed() {
+    callsServed.increment();
+  }
+
+  public long getFloorsTravelled() {
+    return floorsTravelled.sum();
+  }
+
+  /**
+   * @return number of times door was opened
+   */
+  public long getDoorCycles() {
+    return doorCycles.sum();
+  }
+
+  /**
+   * @return number of calls submitted to controller
+   */
+  public long getCallsQueued() {
+    return callsQueued.sum();
+  }
+
+  /**
+   * @return number of calls taken by elevator
+   */
+  public long getCallsAccepted() {
+    return callsAccepted.sum();
+  }
+
+  /**
+   * @return number of stops made for calls
+   */
+  public long getCallsServed() {
+    return callsServed.sum();
+  }
+
+  /**
+   * @return time spent going between floors in milliseconds
+   */
+  public long getMovingMillis() {
+    return movingMillis.sum();
+  }
+
+  /**
+   * @return time spent opening and closing door in milliseconds
+   */
+  public long getDoorMillis() {
+    return doorMillis.sum();
+  }
+
+  /**
+   * @return time elevator did nothing since it was created, in milliseconds
+   */
+  public long getIdleMillis() {
+    return Math.max(0, clock.millis() - startMillis - getMovingMillis() - getDoorMillis());
+  }
+}
@@ -1,46 +1,434 @@
 package netisov.tim;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * Service class to get elevator kicked off.
+ * Service class to get a bank of elevators kicked off,
+ * every call from a floor is routed to one of elevators by {@link Dispatcher}.
  */
-class ElevatorService {
-  private Elevator elevator;
+public class ElevatorService {
+  private final List<Elevator> elevators = new ArrayList<>();
+  private final List<ElevatorController> controllers = new ArrayList<>();
+  private final List<Map<Integer, Long>> pendingCalls = new ArrayList<>();
+  private final DispatchStatistics statistics = new DispatchStatistics();
+  private final MetricsRegistry metrics = new MetricsRegistry();
+  private final ThreadLocal<Elevator> arrivedElevator = new ThreadLocal<>();
+  private final ElevatorEventBus eventBus = new ElevatorEventBus(ElevatorEventBus.DEFAULT_CAPACITY,
+      ElevatorEventBus.BackPressure.COALESCE);
+  private final ElevatorEventListener consolePrinter = ElevatorService::printEvent;
+  private final CarStatePublisher statePublisher = new CarStatePublisher();
+  private Dispatcher dispatcher = new NearestCarDispatcher();
+  private ExecutorService executor;
+  private EventJournal journal;
+  private ScheduledExecutorService snapshotter;
+  private volatile CallRecorder recorder;
+  private volatile DestinationDispatch destinationDispatch;
+  private volatile IdleParking parking;
+  private volatile boolean consoleOutput = true;
+  private boolean eventsStarted;
+
+  public ElevatorService() {
+    eventBus.subscribe(consolePrinter);
+    eventBus.subscribe(statePublisher);
+    metrics.register("dispatch.count", statistics::getDispatchCount);
+    metrics.registerHistogram("dispatch.latency_nanos", statistics::getDispatchLatency);
+    metrics.registerHistogram("calls.wait_millis", statistics::getWaitTimes);
+    metrics.register("events.dropped", eventBus::getDropped);
+    metrics.register("events.coalesced", eventBus::getCoalesced);
+    metrics.register("stream.subscribers", statePublisher::getSubscribers);
+    metrics.register("stream.conflated", statePublisher::getConflated);
+  }
+
+  /**
+   * Create an elevator with specified properties and add it to the bank.
+   *
+   * @param speed       meters per second
+   * @param floorHeight height of a floor in meters
+   * @param doorTimeout timeout opening/closing door in seconds.
+   * @return created elevator
+   */
+  public Elevator createElevator(int speed, int floorHeight, int doorTimeout) {
+    return createElevator(speed, floorHeight, doorTimeout, RealTimeClock.INSTANCE);
+  }
 
   /**
-   * Create an elevator with specified properties.
+   * Create an elevator running on particular clock and add it to the bank.
    *
    * @param speed       meters per second
    * @param floorHeight height of a floor in meters
    * @param doorTimeout timeout opening/closing door in seconds.
+   * @param clock       clock elevator runs on
+   * @return created elevator
    */
-  void createElevator(int speed, int floorHeight, int doorTimeout) {
-    elevator = new Elevator(speed, floorHeight, doorTimeout);
-    elevator.addPassFloorListener(i -> System.out.printf("Passing %d floor %s", i, System.lineSeparator()));
-    elevator.addOpenDoorListener(i -> System.out.printf("Opening door on %d floor %s", i, System.lineSeparator()));
-    elevator.addCloseDoorListener(i -> System.out.printf("Closing door on %d floor %s", i, System.lineSeparator()));
+  public Elevator createElevator(int speed, int floorHeight, int doorTimeout, Clock clock) {
+    return createElevator(speed, floorHeight, doorTimeout, clock, null);
   }
 
   /**
-   * Calling elevator from floors.
+   * Create an elevator stopping at particular floors and add it to the bank.
+   *
+   * @param speed        meters per second
+   * @param floorHeight  height of a floor in meters
+   * @param doorTimeout  timeout opening/closing door in seconds.
+   * @param clock        clock elevator runs on
+   * @param servedFloors floors elevator stops at, null to stop at any floor
+   * @return created elevator
+   */
+  public Elevator createElevator(int speed, int floorHeight, int doorTimeout, Clock clock, ServedFloors servedFloors) {
+    Elevator elevator = new Elevator(speed, floorHeight, doorTimeout, clock, servedFloors);
+    int number = elevators.size() + 1;
+    synchronized (this) {
+      elevator.publishTo(eventsStarted ? eventBus : null, number);
+    }
+    statePublisher.add(number, elevator);
+    if (journal != null) {
+      elevator.journalTo(journal, number);
+    }
+    Map<Integer, Long> calls = new ConcurrentHashMap<>();
+    Consumer<Integer> served = i -> {
+      Long calledAt = calls.remove(i);
+      if (calledAt != null) {
+        statistics.recordWait(elevator.getClock().millis() - calledAt);
+      }
+    };
+    elevator.addOpenDoorListener(served);
+    elevators.add(elevator);
+    ElevatorController controller = new ElevatorController(elevator);
+    // people get in at once if door is opened on their floor, they didn't wait
+    controller.addOpenDoorCallListener(i -> {
+      if (calls.remove(i) != null) {
+        statistics.recordWait(0);
+      }
+    });
+    controllers.add(controller);
+    metrics.register("elevator." + number, elevator);
+    metrics.register("elevator." + number + ".calls_pending", controller::getPendingCalls);
+    pendingCalls.add(calls);
+    if (consoleOutput) {
+      startEvents();
+    }
+    return elevator;
+  }
+
+  /**
+   * Let elevators publish events to the bus and start its consumer thread unless events are
+   * delivered on a thread driving elevators. It's done once somebody listens to events,
+   * so a bank nobody listens to, like a simulation, doesn't publish them or run a thread.
+   */
+  private synchronized void startEvents() {
+    if (eventsStarted) {
+      return;
+    }
+    eventsStarted = true;
+    eventBus.start();
+    for (int i = 0; i < elevators.size(); i++) {
+      elevators.get(i).publishTo(eventBus, i + 1);
+      // events published before aren't delivered, take current state of elevator
+      statePublisher.add(i + 1, elevators.get(i));
+    }
+  }
+
+  /**
+   * Create several elevators of the same kind.
+   *
+   * @param count       number of elevators
+   * @param speed       meters per second
+   * @param floorHeight height of a floor in meters
+   * @param doorTimeout timeout opening/closing door in seconds.
+   */
+  public void createElevators(int count, int speed, int floorHeight, int doorTimeout) {
+    createElevators(count, speed, floorHeight, doorTimeout, null);
+  }
+
+  /**
+   * Create several elevators of the same kind stopping at the same floors.
+   *
+   * @param count        number of elevators
+   * @param speed        meters per second
+   * @param floorHeight  height of a floor in meters
+   * @param doorTimeout  timeout opening/closing door in seconds.
+   * @param servedFloors floors elevators stop at, null to stop at any floor
+   */
+  public void createElevators(int count, int speed, int floorHeight, int doorTimeout, ServedFloors servedFloors) {
+    createElevators(count, speed, floorHeight, doorTimeout, RealTimeClock.INSTANCE, servedFloors);
+  }
+
+  /**
+   * Create several elevators of the same kind running on the same clock.
+   *
+   * @param count        number of elevators
+   * @param speed        meters per second
+   * @param floorHeight  height of a floor in meters
+   * @param doorTimeout  timeout opening/closing door in seconds.
+   * @param clock        clock elevators run on
+   * @param servedFloors floors elevators stop at, null to stop at any floor
+   */
+  public void createElevators(int count, int speed, int floorHeight, int doorTimeout, Clock clock,
+                              ServedFloors servedFloors) {
+    for (int i = 0; i < count; i++) {
+      createElevator(speed, floorHeight, doorTimeout, clock, servedFloors);
+    }
+  }
+
+  /**
+   * Calling elevators from floors, each floor is dispatched to one elevator
+   * and elevators go to their floors at the same time.
    *
    * @param callFromFloors
    * @throws InterruptedException
    */
-  void callElevator(List<Integer> callFromFloors) throws InterruptedException {
-    elevator.callFrom(callFromFloors);
+  public void callElevator(List<Integer> callFromFloors) throws InterruptedException {
+    List<List<Integer>> assigned = new ArrayList<>();
+    for (int i = 0; i < elevators.size(); i++) {
+      assigned.add(new ArrayList<>());
+    }
+    int[] assignedCalls = new int[elevators.size()];
+    Set<Integer> called = new LinkedHashSet<>(callFromFloors);
+    List<Integer> indexes = new ArrayList<>();
+    for (Integer floor : called) {
+      long start = System.nanoTime();
+      int index = dispatcher.dispatch(floor, elevators, assignedCalls);
+      statistics.recordDispatch(System.nanoTime() - start);
+      assigned.get(index).add(elevators.get(index).checkServed(floor));
+      assignedCalls[index]++;
+      indexes.add(index);
+    }
+    // calls are waited for once every floor is known to be served
+    Iterator<Integer> index = indexes.iterator();
+    for (Integer floor : called) {
+      int i = index.next();
+      hallCallAssigned(i, floor, elevators.get(i).getClock().millis());
+    }
+
+    List<Callable<Void>> trips = new ArrayList<>();
+    for (int i = 0; i < elevators.size(); i++) {
+      Elevator elevator = elevators.get(i);
+      List<Integer> floors = assigned.get(i);
+      if (!floors.isEmpty()) {
+        trips.add(() -> {
+          elevator.callFrom(floors);
+          return null;
+        });
+      }
+    }
+    if (trips.size() == 1) {
+      call(trips.get(0));
+    } else if (!trips.isEmpty()) {
+      for (Future<Void> trip : getExecutor().invokeAll(trips)) {
+        try {
+          trip.get();
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    }
+  }
+
+  /**
+   * Submit a call from a floor without waiting for elevator,
+   * the call is dispatched to one of elevators and put into its controller queue.
+   * Controllers should be started with {@link #startControllers()} or driven by simulation clock.
+   * Don't mix it with blocking {@link #callElevator(List)} on the same bank.
+   *
+   * @param floor floor where from elevator is called
+   * @return index of elevator which is going to serve the call
+   */
+  public int submitCall(int floor) {
+    return submitCall(floor, LookScheduler.IDLE);
+  }
+
+  /**
+   * Submit a call from a floor to go in particular direction without waiting for elevator.
+   *
+   * @param floor     floor where from elevator is called
+   * @param direction {@link LookScheduler#UP}, {@link LookScheduler#DOWN} or {@link LookScheduler#IDLE} if unknown
+   * @return index of elevator which is going to serve the call
+   */
+  public int submitCall(int floor, int direction) {
+    int[] assignedCalls = new int[controllers.size()];
+    for (int i = 0; i < assignedCalls.length; i++) {
+      assignedCalls[i] = controllers.get(i).getPendingCalls();
+    }
+    int index = dispatch(floor, assignedCalls);
+    // nothing is kept of a call elevator doesn't take
+    elevators.get(index).checkServed(floor);
+    CallRecorder calls = recorder;
+    if (calls != null) {
+      calls.hallCall(floor, direction);
+    }
+    hallCallAssigned(index, floor, elevators.get(index).getClock().millis());
+    controllers.get(index).submitHallCall(floor, direction);
+    return index;
+  }
+
+  /**
+   * Switch the bank to destination dispatch, people enter floors they go to
+   * with {@link #submitDestinationCall(int, int)}. Elevators should be created before.
+   *
+   * @param batchWindowMillis time calls are collected for before they're assigned together, 0 not to wait
+   * @return destination dispatch of the bank
+   */
+  public synchronized DestinationDispatch setDestinationDispatch(long batchWindowMillis) {
+    if (destinationDispatch != null) {
+      throw new IllegalStateException("Destination dispatch is already on");
+    }
+    destinationDispatch = new DestinationDispatch(this, batchWindowMillis);
+    DestinationDispatch destinations = destinationDispatch;
+    metrics.register("destination.calls", destinations::getCalls);
+    metrics.register("destination.batches", destinations::getBatches);
+    metrics.register("destination.grouped", destinations::getGrouped);
+    return destinations;
+  }
 
+  /**
+   * Submit a call from a floor to go to particular floor without waiting for elevator,
+   * it's assigned to an elevator when batching window closes.
+   *
+   * @param floor       floor where from elevator is called
+   * @param destination floor to go to
+   * @throws IllegalStateException if destination dispatch isn't on
+   */
+  public void submitDestinationCall(int floor, int destination) {
+    DestinationDispatch destinations = destinationDispatch;
+    if (destinations == null) {
+      throw new IllegalStateException("Destination dispatch is off");
+    }
+    destinations.submit(floor, destination);
+    CallRecorder calls = recorder;
+    if (calls != null) {
+      // recorded once taken, so replay doesn't fail on it
+      calls.destinationCall(floor, destination);
+    }
   }
 
   /**
-   * Make elevator go from inside of it.
+   * Choose elevator for a call from floor.
+   *
+   * @param floor         floor where from elevator is called
+   * @param assignedCalls number of calls each elevator has to serve
+   * @return index of elevator
+   */
+  int dispatch(int floor, int[] assignedCalls) {
+    long start = System.nanoTime();
+    int index = dispatcher.dispatch(floor, elevators, assignedCalls);
+    statistics.recordDispatch(System.nanoTime() - start);
+    return index;
+  }
+
+  /**
+   * Start measuring wait time of a call from floor.
+   *
+   * @param index  index of elevator the call is assigned to
+   * @param floor  floor where from elevator is called
+   * @param time   time of call by elevator clock
+   */
+  void hallCallAssigned(int index, int floor, long time) {
+    pendingCalls.get(index).putIfAbsent(floor, time);
+    IdleParking idleParking = parking;
+    if (idleParking != null) {
+      idleParking.callDispatched(index, floor);
+    }
+  }
+
+  /**
+   * Send idle elevators to floors where calls are expected, demand is learnt from calls
+   * the bank gets. Elevators should be created before.
+   *
+   * @param model demand of floors of the building, it can be trained before
+   * @return parking of the bank
+   */
+  public synchronized IdleParking setParking(DemandModel model) {
+    if (parking != null) {
+      throw new IllegalStateException("Parking is already on");
+    }
+    parking = new IdleParking(this, model);
+    return parking;
+  }
+
+  /**
+   * Submit pressed button inside of elevator without waiting for it.
+   *
+   * @param elevatorIndex index of elevator in the bank
+   * @param floor         floor to go to
+   */
+  public void submitCarCall(int elevatorIndex, int floor) {
+    elevators.get(elevatorIndex).checkServed(floor);
+    CallRecorder calls = recorder;
+    if (calls != null) {
+      calls.carCall(elevatorIndex, floor);
+    }
+    controllers.get(elevatorIndex).submitCarCall(floor);
+  }
+
+  /**
+   * Start controller threads of all elevators.
+   */
+  public void startControllers() {
+    controllers.forEach(ElevatorController::start);
+  }
+
+  /**
+   * Let simulation clock drive controllers of all elevators,
+   * elevators should run on this clock. Unless a consumer thread of the bus is already running,
+   * events are delivered on the calling thread when buffer fills up or they're flushed.
+   *
+   * @param clock simulation clock
+   */
+  public void driveControllers(SimulationClock clock) {
+    synchronized (this) {
+      if (!eventsStarted) {
+        eventBus.deliverOn(Thread.currentThread());
+      }
+    }
+    controllers.forEach(c -> c.drive(clock));
+  }
+
+  /**
+   * Stop controller threads of all elevators.
+   *
+   * @throws InterruptedException if interrupted while waiting for controllers to stop
+   */
+  public void stopControllers() throws InterruptedException {
+    for (ElevatorController controller : controllers) {
+      controller.stop();
+    }
+  }
+
+  /**
+   * @return controllers of elevators, in the same order as elevators
+   */
+  public List<ElevatorController> getControllers() {
+    return Collections.unmodifiableList(controllers);
+  }
+
+  /**
+   * Make elevator go from inside of it, it's the elevator
+   * which has just arrived at floor or the first one of the bank.
    *
    * @param goToFloors
    * @throws InterruptedException
    */
-  void elevatorGoTo(List<Integer> goToFloors) throws InterruptedException {
+  public void elevatorGoTo(List<Integer> goToFloors) throws InterruptedException {
+    Elevator elevator = arrivedElevator.get();
+    elevator = elevator != null ? elevator : elevators.get(0);
     elevator.pressedFloorButtons(goToFloors);
   }
 
@@ -50,8 +438,272 @@ class ElevatorService {
    *
    * @param supplier
    */
-  void setActionOnFloorArrival(Supplier<Boolean> supplier) {
-    elevator.setEnterOnFloorObserver(supplier);
+  public void setActionOnFloorArrival(Supplier<Boolean> supplier) {
+    for (Elevator elevator : elevators) {
+      elevator.setEnterOnFloorObserver(() -> {
+        arrivedElevator.set(elevator);
+        try {
+          return supplier.get();
+        } finally {
+          arrivedElevator.remove();
+        }
+      });
+    }
+  }
+
+  /**
+   * @return bus elevator events are published to
+   */
+  public ElevatorEventBus getEventBus() {
+    startEvents();
+    return eventBus;
   }
 
+  /**
+   * Write events of all elevators to a journal, it's up to caller to close it.
+   *
+   * @param journal journal to write to, null to stop writing
+   */
+  public void setJournal(EventJournal journal) {
+    this.journal = journal;
+    for (int i = 0; i < elevators.size(); i++) {
+      elevators.get(i).journalTo(journal, i + 1);
+    }
+  }
+
+  /**
+   * Record every call the bank gets through its controllers to replay it later with {@link CallReplay},
+   * blocking calls aren't recorded as they can't be replayed the same way.
+   *
+   * @param recorder recorder to write calls to, null to stop recording
+   */
+  public void setCallRecorder(CallRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Take states of all elevators and their requests, every elevator
+   * is taken between two steps of its controller.
+   *
+   * @return snapshot
+   * @throws InterruptedException if interrupted while waiting for controllers
+   */
+  public BankSnapshot snapshot() throws InterruptedException {
+    List<CarSnapshot> cars = new ArrayList<>(controllers.size());
+    for (ElevatorController controller : controllers) {
+      cars.add(controller.snapshot());
+    }
+    return new BankSnapshot(System.currentTimeMillis(), cars);
+  }
+
+  /**
+   * Save snapshots of the bank to directory periodically on a background thread until {@link #shutdown()}.
+   *
+   * @param directory    directory of snapshots
+   * @param periodMillis time between snapshots in milliseconds
+   */
+  public synchronized void startSnapshots(Path directory, long periodMillis) {
+    if (snapshotter != null) {
+      snapshotter.shutdownNow();
+    }
+    snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "elevator-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    snapshotter.scheduleAtFixedRate(() -> {
+      try {
+        snapshot().save(directory);
+      } catch (IOException e) {
+        System.err.printf("Unable to save snapshot to %s: %s%s", directory, e.getMessage(), System.lineSeparator());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Bring elevators back to the state they had before restart: state of snapshot
+   * and events written to journal after it. Controllers should not be running.
+   *
+   * @param snapshot         the latest snapshot, null to replay the whole journal
+   * @param journalDirectory directory of journal, null if there is no journal
+   * @throws IOException if journal can't be read
+   */
+  public void restore(BankSnapshot snapshot, Path journalDirectory) throws IOException {
+    long[] fromSequence = new long[controllers.size()];
+    if (snapshot != null) {
+      for (CarSnapshot car : snapshot.getCars()) {
+        int index = car.getElevator() - 1;
+        if (index < 0 || index >= controllers.size()) {
+          throw new IllegalArgumentException("There is no elevator " + car.getElevator() + " in the bank");
+        }
+        controllers.get(index).restore(car);
+        fromSequence[index] = Math.max(0, car.getJournalSequence());
+      }
+    }
+    if (journalDirectory == null) {
+      return;
+    }
+    long start = Long.MAX_VALUE;
+    for (long sequence : fromSequence) {
+      start = Math.min(start, sequence);
+    }
+    try (JournalReader reader = new JournalReader(journalDirectory, start == Long.MAX_VALUE ? 0 : start)) {
+      while (reader.next()) {
+        int index = reader.getElevator() - 1;
+        if (index >= 0 && index < controllers.size() && reader.getSequence() >= fromSequence[index]) {
+          controllers.get(index).replay(reader.getType(), reader.getFloor(), reader.getDirection());
+        }
+      }
+    }
+  }
+
+  /**
+   * @param enabled false to stop printing elevator events to console, like during a long simulation
+   */
+  public void setConsoleOutput(boolean enabled) {
+    eventBus.unsubscribe(consolePrinter);
+    consoleOutput = enabled;
+    if (enabled) {
+      eventBus.subscribe(consolePrinter);
+      if (!elevators.isEmpty()) {
+        startEvents();
+      }
+    }
+  }
+
+  /**
+   * Stream of elevator states for displays and dashboards, subscribers which fall behind
+   * get only the latest state of each elevator and never slow elevators down.
+   *
+   * @return publisher of elevator states
+   */
+  public CarStatePublisher getStatePublisher() {
+    startEvents();
+    return statePublisher;
+  }
+
+  /**
+   * Deliver events of the bank on the thread which drives its elevators instead of
+   * a thread of its own, the thread should drain the bus.
+   *
+   * @param thread thread driving elevators of the bank
+   */
+  void deliverEventsOn(Thread thread) {
+    eventBus.deliverOn(thread);
+  }
+
+  /**
+   * Deliver events published so far on the thread set with {@link #deliverEventsOn(Thread)}.
+   *
+   * @return number of events delivered
+   */
+  int drainEvents() {
+    return eventBus.drain();
+  }
+
+  /**
+   * Wait until events published so far are delivered to bus listeners,
+   * like printing them to console.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void flushEvents() throws InterruptedException {
+    eventBus.flush();
+  }
+
+  /**
+   * Stop controllers and event delivery.
+   *
+   * @throws InterruptedException if interrupted while waiting for threads to stop
+   */
+  public void shutdown() throws InterruptedException {
+    synchronized (this) {
+      if (snapshotter != null) {
+        snapshotter.shutdownNow();
+        snapshotter = null;
+      }
+      if (destinationDispatch != null) {
+        destinationDispatch.close();
+      }
+    }
+    stopControllers();
+    eventBus.close();
+    statePublisher.close();
+  }
+
+  /**
+   * @param dispatcher strategy to route calls with
+   */
+  public void setDispatcher(Dispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * Keep door of every elevator opened depending on how many people get in or out,
+   * elevators should be created.
+   *
+   * @param doorDwell time door stays opened at stops
+   */
+  public void setDoorDwell(DoorDwell doorDwell) {
+    elevators.forEach(e -> e.setDoorDwell(doorDwell));
+  }
+
+  /**
+   * @return elevators of the bank
+   */
+  public List<Elevator> getElevators() {
+    return Collections.unmodifiableList(elevators);
+  }
+
+  /**
+   * @return metrics of the bank and its elevators
+   */
+  public MetricsRegistry getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return dispatch latency and wait time figures
+   */
+  public DispatchStatistics getStatistics() {
+    return statistics;
+  }
+
+  private static void printEvent(ElevatorEvent event, boolean endOfBatch) {
+    switch (event.getType()) {
+      case PASS_FLOOR:
+        System.out.printf("Elevator %d passing %d floor %s", event.getElevator(), event.getFloor(), System.lineSeparator());
+        break;
+      case OPEN_DOOR:
+        System.out.printf("Elevator %d opening door on %d floor %s", event.getElevator(), event.getFloor(), System.lineSeparator());
+        break;
+      case CLOSE_DOOR:
+        System.out.printf("Elevator %d closing door on %d floor %s", event.getElevator(), event.getFloor(), System.lineSeparator());
+        break;
+      default:
+    }
+  }
+
+  private void call(Callable<Void> trip) throws InterruptedException {
+    try {
+      trip.call();
+    } catch (InterruptedException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "elevator-trip");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
 }
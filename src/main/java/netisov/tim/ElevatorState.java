@@ -1,14 +1,189 @@
 package netisov.tim;
 
-import lombok.Getter;
-import lombok.Setter;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Getter
-@Setter
+/**
+ * State of elevator packed into one atomically updated word: floor, direction of travel,
+ * door and number of people inside, along with a version which changes on every update.
+ * Any thread can read the whole state at once with {@link #snapshot()} and take its parts
+ * with static methods, without locks or allocation, so it never sees floor of one moment
+ * and door of another. A reader can check that state hasn't changed since a snapshot
+ * with {@link #isCurrent(long)}, like readers of a seqlock do.
+ */
 public class ElevatorState {
 
-  public static final Integer DEFAULT_FLOOR = 1;
-  private Integer currentFloor = DEFAULT_FLOOR;
-  private boolean doorOpened = false;
+  public static final int DEFAULT_FLOOR = 1;
+  /**
+   * The lowest and the highest floors state can keep.
+   */
+  public static final int MIN_FLOOR = -(1 << 23);
+  public static final int MAX_FLOOR = (1 << 23) - 1;
+  /**
+   * The biggest number of people state keeps count of.
+   */
+  public static final int MAX_LOAD = (1 << 24) - 1;
 
+  // floor in bits 0-23, load in 24-47, direction + 1 in 48-49, door in 50, version in 51-63
+  private static final int FLOOR_BITS = 24;
+  private static final int LOAD_SHIFT = 24;
+  private static final int DIRECTION_SHIFT = 48;
+  private static final int DOOR_SHIFT = 50;
+  private static final int VERSION_SHIFT = 51;
+  private static final long FLOOR_MASK = (1L << FLOOR_BITS) - 1;
+  private static final long LOAD_MASK = (long) MAX_LOAD << LOAD_SHIFT;
+  private static final long DIRECTION_MASK = 3L << DIRECTION_SHIFT;
+  private static final long DOOR_MASK = 1L << DOOR_SHIFT;
+  private static final long VERSION_ONE = 1L << VERSION_SHIFT;
+  private static final long VERSION_MASK = -VERSION_ONE;
+
+  private final AtomicLong word = new AtomicLong(pack(DEFAULT_FLOOR, LookScheduler.IDLE, false, 0));
+
+  /**
+   * @return the whole state at this moment, parts of it are taken by {@link #floor(long)},
+   * {@link #direction(long)}, {@link #doorOpened(long)}, {@link #load(long)} and {@link #version(long)}
+   */
+  public long snapshot() {
+    return word.get();
+  }
+
+  /**
+   * @param snapshot state taken by {@link #snapshot()}
+   * @return true if state hasn't changed since then
+   */
+  public boolean isCurrent(long snapshot) {
+    return word.get() == snapshot;
+  }
+
+  public int getCurrentFloor() {
+    return floor(word.get());
+  }
+
+  public void setCurrentFloor(int currentFloor) {
+    update(~FLOOR_MASK, floorBits(currentFloor));
+  }
+
+  public boolean isDoorOpened() {
+    return doorOpened(word.get());
+  }
+
+  public void setDoorOpened(boolean doorOpened) {
+    update(~DOOR_MASK, doorOpened ? DOOR_MASK : 0);
+  }
+
+  /**
+   * @return {@link LookScheduler#UP}, {@link LookScheduler#DOWN} or {@link LookScheduler#IDLE}
+   */
+  public int getDirection() {
+    return direction(word.get());
+  }
+
+  /**
+   * @param direction direction of travel, {@link LookScheduler#UP}, {@link LookScheduler#DOWN}
+   *                  or {@link LookScheduler#IDLE}
+   */
+  public void setDirection(int direction) {
+    update(~DIRECTION_MASK, directionBits(direction));
+  }
+
+  /**
+   * @return number of people inside
+   */
+  public int getLoad() {
+    return load(word.get());
+  }
+
+  /**
+   * @param load number of people inside, counted up to {@link #MAX_LOAD}
+   */
+  public void setLoad(int load) {
+    update(~LOAD_MASK, loadBits(load));
+  }
+
+  /**
+   * Elevator has gone to the next floor.
+   *
+   * @param direction {@link LookScheduler#UP} or {@link LookScheduler#DOWN}
+   */
+  public void move(int direction) {
+    long current;
+    long next;
+    do {
+      current = word.get();
+      next = (current & ~(FLOOR_MASK | DIRECTION_MASK)) + VERSION_ONE
+          | floorBits(floor(current) + direction) | directionBits(direction);
+    } while (!word.compareAndSet(current, next));
+  }
+
+  /**
+   * Change the whole state at once.
+   *
+   * @param floor      current floor
+   * @param direction  direction of travel
+   * @param doorOpened true if door is opened
+   * @param load       number of people inside
+   */
+  public void set(int floor, int direction, boolean doorOpened, int load) {
+    update(0, pack(floor, direction, doorOpened, load));
+  }
+
+  public static int floor(long snapshot) {
+    return (int) (snapshot << (Long.SIZE - FLOOR_BITS) >> (Long.SIZE - FLOOR_BITS));
+  }
+
+  public static int direction(long snapshot) {
+    return (int) ((snapshot & DIRECTION_MASK) >>> DIRECTION_SHIFT) - 1;
+  }
+
+  public static boolean doorOpened(long snapshot) {
+    return (snapshot & DOOR_MASK) != 0;
+  }
+
+  public static int load(long snapshot) {
+    return (int) ((snapshot & LOAD_MASK) >>> LOAD_SHIFT);
+  }
+
+  /**
+   * @return number of updates modulo 8192, it tells snapshots of equal state apart
+   */
+  public static int version(long snapshot) {
+    return (int) (snapshot >>> VERSION_SHIFT);
+  }
+
+  /**
+   * Replace bits outside of kept ones and bump version.
+   */
+  private void update(long kept, long bits) {
+    long current;
+    long next;
+    do {
+      current = word.get();
+      next = ((current & kept & ~VERSION_MASK) | bits) + ((current & VERSION_MASK) + VERSION_ONE);
+    } while (!word.compareAndSet(current, next));
+  }
+
+  private static long pack(int floor, int direction, boolean doorOpened, int load) {
+    return floorBits(floor) | loadBits(load) | directionBits(direction) | (doorOpened ? DOOR_MASK : 0);
+  }
+
+  private static long floorBits(int floor) {
+    if (floor < MIN_FLOOR || floor > MAX_FLOOR) {
+      throw new IllegalArgumentException("Floor is out of range: " + floor);
+    }
+    return floor & FLOOR_MASK;
+  }
+
+  private static long directionBits(int direction) {
+    return (long) (Integer.signum(direction) + 1) << DIRECTION_SHIFT;
+  }
+
+  private static long loadBits(int load) {
+    return (long) Math.max(0, Math.min(load, MAX_LOAD)) << LOAD_SHIFT;
+  }
+
+  @Override
+  public String toString() {
+    long snapshot = word.get();
+    return "floor " + floor(snapshot) + (doorOpened(snapshot) ? " opened" : " closed")
+        + " direction " + direction(snapshot) + " load " + load(snapshot);
+  }
 }
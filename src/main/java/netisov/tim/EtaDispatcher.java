@@ -0,0 +1,47 @@
+package netisov.tim;
+
+import java.util.List;
+
+/**
+ * Sends the elevator with the smallest estimated time of arrival,
+ * trips are estimated by {@link CarKinematics} of each elevator,
+ * each call already assigned to an elevator costs it one stop on the way.
+ */
+public final class EtaDispatcher implements Dispatcher {
+
+  @Override
+  public int dispatch(int floor, List<Elevator> elevators, int[] assignedCalls) {
+    int best = -1;
+    long bestEta = Long.MAX_VALUE;
+    for (int i = 0; i < elevators.size(); i++) {
+      Elevator elevator = elevators.get(i);
+      if (!elevator.serves(floor)) {
+        continue;
+      }
+      long eta = estimateArrival(elevator, floor, assignedCalls[i]);
+      if (eta < bestEta) {
+        best = i;
+        bestEta = eta;
+      }
+    }
+    if (best < 0) {
+      throw new IllegalArgumentException("No elevator stops at floor " + floor);
+    }
+    return best;
+  }
+
+  /**
+   * Estimate time elevator needs to arrive at floor.
+   *
+   * @param elevator    elevator to estimate for
+   * @param floor       floor to arrive at
+   * @param stopsBefore number of stops elevator makes before
+   * @return time in milliseconds
+   */
+  static long estimateArrival(Elevator elevator, int floor, int stopsBefore) {
+    CarKinematics kinematics = elevator.getKinematics();
+    ElevatorState state = elevator.getState();
+    return kinematics.travelMillis(state.getCurrentFloor(), floor) + stopsBefore * kinematics.getStopMillis()
+        + (state.isDoorOpened() ? kinematics.getDoorMillis() : 0);
+  }
+}
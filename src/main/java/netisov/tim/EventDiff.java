@@ -0,0 +1,38 @@
+package netisov.tim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Compares sequences of events of two runs line by line.
+ */
+public final class EventDiff {
+
+  private EventDiff() {
+  }
+
+  /**
+   * @param expected events of one run
+   * @param actual   events of another run
+   * @return description of the first difference or null if runs are the same
+   * @throws IOException if events can't be read
+   */
+  public static String diff(Reader expected, Reader actual) throws IOException {
+    BufferedReader a = expected instanceof BufferedReader ? (BufferedReader) expected : new BufferedReader(expected);
+    BufferedReader b = actual instanceof BufferedReader ? (BufferedReader) actual : new BufferedReader(actual);
+    long lineNumber = 0;
+    while (true) {
+      String left = a.readLine();
+      String right = b.readLine();
+      lineNumber++;
+      if (left == null && right == null) {
+        return null;
+      }
+      if (left == null || !left.equals(right)) {
+        return String.format("Events differ at line %d:%n- %s%n+ %s", lineNumber,
+            left == null ? "<end>" : left, right == null ? "<end>" : right);
+      }
+    }
+  }
+}
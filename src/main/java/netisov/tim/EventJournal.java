@@ -0,0 +1,245 @@
+package netisov.tim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary journal of elevator events written to memory-mapped segment files,
+ * so writing an event is a few stores into memory without system calls, any number
+ * of elevators can write at the same time. Every record takes {@link #RECORD_SIZE} bytes
+ * and has a sequence number, a segment file is named after sequence of its first record.
+ * Type of record is written last by a release store and read by an acquire load,
+ * so a record with no type is one not written completely and a record with type is seen whole.
+ * Opening journal in a directory where it exists continues it after the last complete record.
+ * Records are read with {@link JournalReader}.
+ */
+public final class EventJournal implements Closeable {
+  public static final int RECORD_SIZE = 32;
+  public static final int DEFAULT_SEGMENT_RECORDS = 1 << 21;
+  static final int TYPE_OFFSET = 0;
+  static final int ELEVATOR_OFFSET = 4;
+  static final int TIME_OFFSET = 8;
+  static final int FLOOR_OFFSET = 16;
+  static final int DIRECTION_OFFSET = 20;
+  static final int SEQUENCE_OFFSET = 24;
+  static final String SEGMENT_PREFIX = "journal-";
+  static final String SEGMENT_SUFFIX = ".log";
+  /**
+   * Number of the latest segments writers can still write to.
+   */
+  private static final int SEGMENT_SLOTS = 64;
+  private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final Path directory;
+  private final int segmentRecords;
+  private final AtomicLong nextSequence;
+  private final AtomicReferenceArray<Segment> slots = new AtomicReferenceArray<>(SEGMENT_SLOTS);
+  private final long firstEnd;
+  private volatile Segment current;
+  private volatile boolean closed;
+
+  /**
+   * @param directory directory to keep segment files in, created if it doesn't exist
+   * @throws IOException if segment can't be created or mapped
+   */
+  public EventJournal(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_RECORDS);
+  }
+
+  /**
+   * @param directory      directory to keep segment files in, created if it doesn't exist
+   * @param segmentRecords number of records in a segment file
+   * @throws IOException if segment can't be created or mapped
+   */
+  public EventJournal(Path directory, int segmentRecords) throws IOException {
+    if (segmentRecords <= 0) {
+      throw new IllegalArgumentException("Segment should have room for records: " + segmentRecords);
+    }
+    this.directory = Files.createDirectories(directory);
+    this.segmentRecords = segmentRecords;
+    List<Path> segments = segments(directory);
+    long next = 0;
+    Segment segment;
+    if (segments.isEmpty()) {
+      segment = new Segment(0, 0, segmentRecords, map(0, segmentRecords));
+    } else {
+      Path last = segments.get(segments.size() - 1);
+      long start = firstSequence(last);
+      int records = (int) (Files.size(last) / RECORD_SIZE);
+      segment = new Segment(0, start, records, map(start, records));
+      next = start;
+      while (next < segment.end && readType(segment.buffer, segment.offset(next)) != 0) {
+        next++;
+      }
+    }
+    this.firstEnd = segment.end;
+    this.slots.set(0, segment);
+    this.current = segment;
+    this.nextSequence = new AtomicLong(next);
+  }
+
+  /**
+   * Write an event, it doesn't allocate anything unless a new segment is started.
+   *
+   * @param type      kind of event
+   * @param elevator  number of elevator
+   * @param floor     floor number
+   * @param direction direction of call, {@link LookScheduler#IDLE} if there isn't any
+   * @param time      time of event in milliseconds
+   * @return sequence number of record
+   */
+  public long append(ElevatorEvent.Type type, int elevator, int floor, int direction, long time) {
+    if (closed) {
+      throw new IllegalStateException("Journal is closed");
+    }
+    long sequence = nextSequence.getAndIncrement();
+    Segment segment = segmentOf(sequence);
+    MappedByteBuffer buffer = segment.buffer;
+    int offset = segment.offset(sequence);
+    buffer.putInt(offset + ELEVATOR_OFFSET, elevator);
+    buffer.putLong(offset + TIME_OFFSET, time);
+    buffer.putInt(offset + FLOOR_OFFSET, floor);
+    buffer.putInt(offset + DIRECTION_OFFSET, direction);
+    buffer.putLong(offset + SEQUENCE_OFFSET, sequence);
+    // the other fields are visible to whoever sees the type
+    INT.setRelease(buffer, offset + TYPE_OFFSET, type.ordinal() + 1);
+    return sequence;
+  }
+
+  /**
+   * @param buffer mapped segment
+   * @param offset offset of record
+   * @return type of record plus one, 0 if it isn't written completely,
+   * fields of record written before the type are visible after it's read
+   */
+  static int readType(ByteBuffer buffer, int offset) {
+    return (int) INT.getAcquire(buffer, offset + TYPE_OFFSET);
+  }
+
+  /**
+   * @return sequence number next record is going to get
+   */
+  public long getNextSequence() {
+    return nextSequence.get();
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Write records of current segment to disk, without it they survive crash of JVM but not of OS.
+   */
+  public void force() {
+    current.buffer.force();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      for (int i = 0; i < SEGMENT_SLOTS; i++) {
+        Segment segment = slots.get(i);
+        if (segment != null) {
+          segment.buffer.force();
+        }
+      }
+    }
+  }
+
+  /**
+   * @param directory directory of journal
+   * @return segment files in order of sequence
+   * @throws IOException if directory can't be read
+   */
+  static List<Path> segments(Path directory) throws IOException {
+    List<Path> segments = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return segments;
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(f -> f.getFileName().toString().startsWith(SEGMENT_PREFIX)
+          && f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+          .sorted()
+          .forEach(segments::add);
+    }
+    return segments;
+  }
+
+  static long firstSequence(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private Segment segmentOf(long sequence) {
+    int index = sequence < firstEnd ? 0 : 1 + (int) ((sequence - firstEnd) / segmentRecords);
+    Segment segment = slots.get(index % SEGMENT_SLOTS);
+    if (segment == null || segment.index < index) {
+      segment = roll(index);
+    }
+    if (segment.index != index) {
+      // writer which got its sequence long before, its segment is already closed
+      throw new IllegalStateException("Segment of record " + sequence + " is already closed");
+    }
+    return segment;
+  }
+
+  private synchronized Segment roll(int index) {
+    Segment segment = current;
+    while (segment.index < index) {
+      try {
+        Segment next = new Segment(segment.index + 1, segment.end, segmentRecords, map(segment.end, segmentRecords));
+        segment.buffer.force();
+        slots.set(next.index % SEGMENT_SLOTS, next);
+        current = next;
+        segment = next;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return slots.get(index % SEGMENT_SLOTS);
+  }
+
+  private MappedByteBuffer map(long start, int records) throws IOException {
+    Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_SIZE);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      return buffer;
+    }
+  }
+
+  private static final class Segment {
+    private final int index;
+    private final long start;
+    private final long end;
+    private final MappedByteBuffer buffer;
+
+    Segment(int index, long start, int records, MappedByteBuffer buffer) {
+      this.index = index;
+      this.start = start;
+      this.end = start + records;
+      this.buffer = buffer;
+    }
+
+    int offset(long sequence) {
+      return (int) (sequence - start) * RECORD_SIZE;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package netisov.tim;
+
+import java.util.Arrays;
+
+/**
+ * Set of floors kept as bits of a long array, one bit per floor,
+ * so checking, adding and removing a floor does not allocate anything.
+ * There is a summary bit for every word, so search for the next floor skips
+ * 64 floors per bit and 4096 floors per summary word and stays fast in
+ * buildings of thousands of floors.
+ * Memory grows only when a floor beyond current capacity is added.
+ * Floors are numbered from 0, see {@link BuildingTopology#toIndex(int)} for real floor numbers.
+ * Not thread safe.
+ */
+public final class FloorRequestSet {
+  public static final int NONE = Integer.MIN_VALUE;
+  private static final int WORD_BITS = 64;
+
+  private long[] words;
+  private long[] summary;
+  private int size;
+
+  public FloorRequestSet() {
+    this(WORD_BITS);
+  }
+
+  /**
+   * @param capacity number of floors to allocate space for
+   */
+  public FloorRequestSet(int capacity) {
+    words = new long[Math.max(1, (capacity + WORD_BITS - 1) / WORD_BITS)];
+    summary = new long[(words.length + WORD_BITS - 1) / WORD_BITS];
+  }
+
+  /**
+   * @param floor number, not negative
+   * @return true if floor was not requested before
+   */
+  public boolean add(int floor) {
+    if (floor < 0) {
+      throw new IllegalArgumentException("Floor can't be negative: " + floor);
+    }
+    int index = floor >>> 6;
+    if (index >= words.length) {
+      words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+      summary = Arrays.copyOf(summary, (words.length + WORD_BITS - 1) / WORD_BITS);
+    }
+    long mask = 1L << floor;
+    if ((words[index] & mask) != 0) {
+      return false;
+    }
+    words[index] |= mask;
+    summary[index >>> 6] |= 1L << index;
+    size++;
+    return true;
+  }
+
+  /**
+   * @param floor number
+   * @return true if floor was requested
+   */
+  public boolean remove(int floor) {
+    int index = floor >>> 6;
+    if (floor < 0 || index >= words.length) {
+      return false;
+    }
+    long mask = 1L << floor;
+    if ((words[index] & mask) == 0) {
+      return false;
+    }
+    words[index] &= ~mask;
+    if (words[index] == 0) {
+      summary[index >>> 6] &= ~(1L << index);
+    }
+    size--;
+    return true;
+  }
+
+  public boolean contains(int floor) {
+    int index = floor >>> 6;
+    return floor >= 0 && index < words.length && (words[index] & (1L << floor)) != 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(words, 0);
+    Arrays.fill(summary, 0);
+    size = 0;
+  }
+
+  /**
+   * @param from floor to start search from, inclusive
+   * @return the lowest requested floor not below given one or {@link #NONE}
+   */
+  public int nextFloor(int from) {
+    return nextFloor(this, this, from);
+  }
+
+  /**
+   * @param from floor to start search from, inclusive
+   * @return the highest requested floor not above given one or {@link #NONE}
+   */
+  public int previousFloor(int from) {
+    return previousFloor(this, this, from);
+  }
+
+  /**
+   * Search the lowest floor requested in any of two sets.
+   *
+   * @param a    first set
+   * @param b    second set
+   * @param from floor to start search from, inclusive
+   * @return the lowest floor not below given one or {@link #NONE}
+   */
+  public static int nextFloor(FloorRequestSet a, FloorRequestSet b, int from) {
+    from = Math.max(from, 0);
+    int index = from >>> 6;
+    if (index >= Math.max(a.words.length, b.words.length)) {
+      return NONE;
+    }
+    long word = (a.word(index) | b.word(index)) & (-1L << from);
+    if (word == 0) {
+      index = nextWord(a, b, index + 1);
+      if (index == NONE) {
+        return NONE;
+      }
+      word = a.word(index) | b.word(index);
+    }
+    return index * WORD_BITS + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Search the highest floor requested in any of two sets.
+   *
+   * @param a    first set
+   * @param b    second set
+   * @param from floor to start search from, inclusive
+   * @return the highest floor not above given one or {@link #NONE}
+   */
+  public static int previousFloor(FloorRequestSet a, FloorRequestSet b, int from) {
+    if (from < 0) {
+      return NONE;
+    }
+    int length = Math.max(a.words.length, b.words.length);
+    int index = from >>> 6;
+    long word;
+    if (index >= length) {
+      index = length - 1;
+      word = a.word(index) | b.word(index);
+    } else {
+      word = (a.word(index) | b.word(index)) & (-1L >>> (WORD_BITS - 1 - (from & 63)));
+    }
+    if (word == 0) {
+      index = previousWord(a, b, index - 1);
+      if (index == NONE) {
+        return NONE;
+      }
+      word = a.word(index) | b.word(index);
+    }
+    return (index + 1) * WORD_BITS - 1 - Long.numberOfLeadingZeros(word);
+  }
+
+  /**
+   * @return index of the first not empty word of any set starting from given one
+   */
+  private static int nextWord(FloorRequestSet a, FloorRequestSet b, int from) {
+    int index = from >>> 6;
+    int length = Math.max(a.summary.length, b.summary.length);
+    if (index >= length) {
+      return NONE;
+    }
+    long word = (a.summaryWord(index) | b.summaryWord(index)) & (-1L << from);
+    while (word == 0) {
+      if (++index == length) {
+        return NONE;
+      }
+      word = a.summaryWord(index) | b.summaryWord(index);
+    }
+    return index * WORD_BITS + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * @return index of the last not empty word of any set up to given one
+   */
+  private static int previousWord(FloorRequestSet a, FloorRequestSet b, int from) {
+    if (from < 0) {
+      return NONE;
+    }
+    int length = Math.max(a.summary.length, b.summary.length);
+    int index = from >>> 6;
+    long word;
+    if (index >= length) {
+      index = length - 1;
+      word = a.summaryWord(index) | b.summaryWord(index);
+    } else {
+      word = (a.summaryWord(index) | b.summaryWord(index)) & (-1L >>> (WORD_BITS - 1 - (from & 63)));
+    }
+    while (word == 0) {
+      if (index-- == 0) {
+        return NONE;
+      }
+      word = a.summaryWord(index) | b.summaryWord(index);
+    }
+    return (index + 1) * WORD_BITS - 1 - Long.numberOfLeadingZeros(word);
+  }
+
+  private long word(int index) {
+    return index < words.length ? words[index] : 0;
+  }
+
+  private long summaryWord(int index) {
+    return index < summary.length ? summary[index] : 0;
+  }
+}
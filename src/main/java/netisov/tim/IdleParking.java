@@ -0,0 +1,120 @@
+package netisov.tim;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Sends elevators which have nothing to do to floors where calls are expected soon,
+ * so people there don't wait for elevator to come from the other end of building.
+ * Calls dispatched by the bank teach {@link DemandModel}, when elevator closes door and
+ * has no more calls it goes to the floor of the highest demand no other idle elevator waits at.
+ * Works with elevators driven by controllers, see {@link ElevatorService#submitCall(int, int)}.
+ */
+public final class IdleParking {
+  private final ElevatorService service;
+  private final DemandModel model;
+  private final boolean simulated;
+  // floors idle elevators wait at or go to, guarded by this
+  private final int[] parkedAt;
+
+  /**
+   * @param service bank with all its elevators created
+   * @param model   demand of floors of the bank's building
+   */
+  IdleParking(ElevatorService service, DemandModel model) {
+    this.service = service;
+    this.model = model;
+    List<ElevatorController> controllers = service.getControllers();
+    this.parkedAt = new int[controllers.size()];
+    this.simulated = !controllers.isEmpty() && controllers.get(0).getElevator().getClock() instanceof SimulationClock;
+    for (int i = 0; i < controllers.size(); i++) {
+      int index = i;
+      parkedAt[i] = LookScheduler.NONE;
+      controllers.get(i).getElevator().addCloseDoorListener(floor -> doorClosed(index));
+    }
+  }
+
+  /**
+   * A call is assigned to elevator, it isn't idle anymore.
+   *
+   * @param index index of elevator in the bank
+   * @param floor floor where from elevator is called
+   */
+  void callDispatched(int index, int floor) {
+    long time = timeOfDay();
+    synchronized (this) {
+      model.record(floor, time);
+      parkedAt[index] = LookScheduler.NONE;
+    }
+  }
+
+  /**
+   * @param index index of elevator in the bank
+   * @return floor elevator waits at or goes to wait at, {@link LookScheduler#NONE} if it isn't parked
+   */
+  public synchronized int getParkingFloor(int index) {
+    return parkedAt[index];
+  }
+
+  /**
+   * @return model of demand calls teach
+   */
+  public DemandModel getModel() {
+    return model;
+  }
+
+  private void doorClosed(int index) {
+    ElevatorController controller = service.getControllers().get(index);
+    // elevators called by blocking calls have no controller to park them
+    if (!controller.isActive() || controller.getPendingCalls() != 0) {
+      return;
+    }
+    Elevator elevator = controller.getElevator();
+    int floor = chooseFloor(index, elevator);
+    if (floor != LookScheduler.NONE && floor != elevator.getState().getCurrentFloor()) {
+      controller.park(floor);
+    }
+  }
+
+  private synchronized int chooseFloor(int index, Elevator elevator) {
+    long time = timeOfDay();
+    BuildingTopology topology = model.getTopology();
+    int current = elevator.getState().getCurrentFloor();
+    int best = LookScheduler.NONE;
+    double bestDemand = 0;
+    for (int floor = topology.getLowestFloor(); floor <= topology.getHighestFloor(); floor++) {
+      if (!elevator.serves(floor) || isTaken(index, floor)) {
+        continue;
+      }
+      double demand = model.demand(floor, time);
+      // the nearer floor of the same demand saves a trip
+      if (demand > bestDemand || (demand == bestDemand && best != LookScheduler.NONE
+          && Math.abs(floor - current) < Math.abs(best - current))) {
+        best = floor;
+        bestDemand = demand;
+      }
+    }
+    parkedAt[index] = best != LookScheduler.NONE ? best : current;
+    return best;
+  }
+
+  private boolean isTaken(int index, int floor) {
+    for (int i = 0; i < parkedAt.length; i++) {
+      if (i != index && parkedAt[i] == floor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Simulated time starts at midnight, real time is local time of day.
+   */
+  private long timeOfDay() {
+    if (simulated) {
+      return service.getControllers().get(0).getElevator().getClock().millis();
+    }
+    long now = System.currentTimeMillis();
+    return now + TimeZone.getDefault().getOffset(now);
+  }
+}
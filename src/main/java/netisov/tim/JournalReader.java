@@ -0,0 +1,139 @@
+package netisov.tim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads records of {@link EventJournal} one by one without allocating anything
+ * but mapping of segment files, fields of current record are returned by getters.
+ * Reading stops at the first record not written completely,
+ * {@link #next()} can be called later again to read records written since then.
+ */
+public final class JournalReader implements Closeable {
+  private static final ElevatorEvent.Type[] TYPES = ElevatorEvent.Type.values();
+
+  private final Path directory;
+  private List<Path> segments;
+  private int segmentIndex = -1;
+  private MappedByteBuffer buffer;
+  private long segmentStart;
+  private long segmentEnd;
+  private long position;
+  private ElevatorEvent.Type type;
+  private int elevator;
+  private long time;
+  private int floor;
+  private int direction;
+  private long sequence = -1;
+
+  /**
+   * @param directory directory of journal
+   * @throws IOException if directory can't be read
+   */
+  public JournalReader(Path directory) throws IOException {
+    this(directory, 0);
+  }
+
+  /**
+   * @param directory    directory of journal
+   * @param fromSequence sequence of the first record to read
+   * @throws IOException if directory can't be read
+   */
+  public JournalReader(Path directory, long fromSequence) throws IOException {
+    this.directory = directory;
+    this.segments = EventJournal.segments(directory);
+    this.position = fromSequence;
+    while (segmentIndex + 1 < segments.size()
+        && EventJournal.firstSequence(segments.get(segmentIndex + 1)) <= fromSequence) {
+      segmentIndex++;
+    }
+    if (segmentIndex >= 0) {
+      open(segments.get(segmentIndex));
+    }
+  }
+
+  /**
+   * Move to the next record.
+   *
+   * @return false if there are no more complete records
+   * @throws IOException if segment file can't be read
+   */
+  public boolean next() throws IOException {
+    while (buffer == null || position >= segmentEnd) {
+      if (segmentIndex + 1 >= segments.size()) {
+        segments = EventJournal.segments(directory);
+        if (segmentIndex + 1 >= segments.size()) {
+          return false;
+        }
+      }
+      open(segments.get(++segmentIndex));
+      position = Math.max(position, segmentStart);
+    }
+    int offset = (int) (position - segmentStart) * EventJournal.RECORD_SIZE;
+    int typeCode = EventJournal.readType(buffer, offset);
+    if (typeCode == 0) {
+      return false;
+    }
+    type = TYPES[typeCode - 1];
+    elevator = buffer.getInt(offset + EventJournal.ELEVATOR_OFFSET);
+    time = buffer.getLong(offset + EventJournal.TIME_OFFSET);
+    floor = buffer.getInt(offset + EventJournal.FLOOR_OFFSET);
+    direction = buffer.getInt(offset + EventJournal.DIRECTION_OFFSET);
+    sequence = buffer.getLong(offset + EventJournal.SEQUENCE_OFFSET);
+    position++;
+    return true;
+  }
+
+  public ElevatorEvent.Type getType() {
+    return type;
+  }
+
+  /**
+   * @return number of elevator in its bank
+   */
+  public int getElevator() {
+    return elevator;
+  }
+
+  /**
+   * @return time of elevator clock when event happened, in milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  public int getFloor() {
+    return floor;
+  }
+
+  /**
+   * @return direction of call, {@link LookScheduler#IDLE} if there isn't any
+   */
+  public int getDirection() {
+    return direction;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  @Override
+  public void close() {
+    buffer = null;
+  }
+
+  private void open(Path segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      segmentStart = EventJournal.firstSequence(segment);
+      segmentEnd = segmentStart + channel.size() / EventJournal.RECORD_SIZE;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package netisov.tim;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies taking fixed memory whatever number of values is recorded,
+ * in the way of HdrHistogram: values are counted in buckets which grow twice with every
+ * power of two, each bucket split into 256 sub-buckets, so a value is known with precision
+ * better than 1%, and values below 256 are exact.
+ * Not thread safe, {@link AtomicHistogram} is the one to record from many threads.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 8;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+  private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_BITS;
+  private static final long SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+  private static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_BITS - 1;
+  /**
+   * A day in milliseconds.
+   */
+  public static final long DEFAULT_HIGHEST_VALUE = 24L * 60 * 60 * 1000;
+
+  private final long highestTrackableValue;
+  private final long[] counts;
+  private long totalCount;
+  private long sum;
+  private long min = Long.MAX_VALUE;
+  private long max;
+
+  public LatencyHistogram() {
+    this(DEFAULT_HIGHEST_VALUE);
+  }
+
+  /**
+   * @param highestTrackableValue the highest value to count, bigger ones are counted as this one
+   */
+  public LatencyHistogram(long highestTrackableValue) {
+    this.highestTrackableValue = trackable(highestTrackableValue);
+    counts = new long[countsLength(this.highestTrackableValue)];
+  }
+
+  /**
+   * @param value value to count, negative one is counted as 0
+   */
+  public void record(long value) {
+    value = Math.max(0, Math.min(value, highestTrackableValue));
+    counts[countsIndex(value)]++;
+    totalCount++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Add values of other histogram to this one.
+   *
+   * @param other histogram of the same size
+   */
+  public void add(LatencyHistogram other) {
+    if (other.counts.length != counts.length) {
+      throw new IllegalArgumentException("Histograms have different range");
+    }
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    totalCount += other.totalCount;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Replace values with those of counts recorded by another histogram of the same range.
+   */
+  void load(AtomicLongArray source, long sum, long min, long max) {
+    long total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = source.get(i);
+      total += counts[i];
+    }
+    this.totalCount = total;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+  }
+
+  public void reset() {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    sum = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+
+  /**
+   * @param percentile from 0 to 100
+   * @return value which the given percent of values are not bigger than,
+   * it's the highest value of its sub-bucket
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      if (cumulative >= countAtPercentile) {
+        return Math.min(highestValueOfIndex(i), max);
+      }
+    }
+    return max;
+  }
+
+  public long getCount() {
+    return totalCount;
+  }
+
+  public double getMean() {
+    return totalCount == 0 ? 0 : (double) sum / totalCount;
+  }
+
+  public long getMin() {
+    return totalCount == 0 ? 0 : min;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("p50 %d, p99 %d, p99.9 %d, max %d",
+        getValueAtPercentile(50), getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+  }
+
+  static long trackable(long highestTrackableValue) {
+    return Math.max(highestTrackableValue, SUB_BUCKET_COUNT);
+  }
+
+  static int countsLength(long highestTrackableValue) {
+    int buckets = 1;
+    long smallestUntrackable = SUB_BUCKET_COUNT;
+    while (smallestUntrackable <= highestTrackableValue && smallestUntrackable > 0) {
+      smallestUntrackable <<= 1;
+      buckets++;
+    }
+    return (buckets + 1) * SUB_BUCKET_HALF_COUNT;
+  }
+
+  static int countsIndex(long value) {
+    int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+    int subBucketIndex = (int) (value >>> bucketIndex);
+    return ((bucketIndex + 1) << SUB_BUCKET_HALF_BITS) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+  }
+
+  private static long highestValueOfIndex(int index) {
+    int bucketIndex = (index >> SUB_BUCKET_HALF_BITS) - 1;
+    int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+    if (bucketIndex < 0) {
+      subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+      bucketIndex = 0;
+    }
+    return ((long) (subBucketIndex + 1) << bucketIndex) - 1;
+  }
+}
@@ -0,0 +1,283 @@
+package netisov.tim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collective control of elevator stops by LOOK algorithm: elevator keeps going
+ * in its direction stopping at every requested floor on the way and turns back
+ * only when there are no more requests ahead. Calls from inside of elevator stop it
+ * in any direction, calls from floors with a direction stop it only when it goes that way
+ * or turns back on the floor. Every call is served at most after one round trip of elevator,
+ * no matter how many calls come later.
+ * Requests are kept in {@link FloorRequestSet}s, so choosing the next stop doesn't allocate anything
+ * and takes time growing much slower than number of floors.
+ * Not thread safe.
+ */
+public final class LookScheduler {
+  public static final int UP = 1;
+  public static final int DOWN = -1;
+  public static final int IDLE = 0;
+  public static final int NONE = FloorRequestSet.NONE;
+
+  private final FloorRequestSet stops = new FloorRequestSet();
+  private final FloorRequestSet upCalls = new FloorRequestSet();
+  private final FloorRequestSet downCalls = new FloorRequestSet();
+  private final int lowestFloor;
+  private int direction = IDLE;
+  // floor of the last stop and direction of the calls from floor served there, if only one way
+  private int servedFloor = NONE;
+  private int servedDirection = IDLE;
+
+  /**
+   * Scheduler for floors numbered from 0.
+   */
+  public LookScheduler() {
+    this(0);
+  }
+
+  /**
+   * @param lowestFloor the lowest floor elevator can go to, negative for basements
+   */
+  public LookScheduler(int lowestFloor) {
+    this.lowestFloor = lowestFloor;
+  }
+
+  /**
+   * Request a stop at floor whatever direction elevator goes in.
+   *
+   * @param floor number
+   */
+  public void add(int floor) {
+    stops.add(floor - lowestFloor);
+  }
+
+  /**
+   * Request a stop at floor to go in particular direction.
+   *
+   * @param floor     number
+   * @param direction {@link #UP} or {@link #DOWN}, {@link #IDLE} if direction is unknown
+   */
+  public void addHallCall(int floor, int direction) {
+    floor -= lowestFloor;
+    if (direction == UP) {
+      upCalls.add(floor);
+    } else if (direction == DOWN) {
+      downCalls.add(floor);
+    } else {
+      stops.add(floor);
+    }
+  }
+
+  /**
+   * Elevator has stopped at floor, so the requests of its direction are served,
+   * requests of opposite direction are served too if elevator turns back here.
+   *
+   * @param floor number
+   */
+  public void remove(int floor) {
+    floor -= lowestFloor;
+    stops.remove(floor);
+    boolean up = false;
+    boolean down = false;
+    if (direction != DOWN) {
+      up = upCalls.remove(floor);
+    }
+    if (direction != UP) {
+      down = downCalls.remove(floor);
+    }
+    if (direction == UP && nextAbove(floor + 1) == NONE) {
+      down |= downCalls.remove(floor);
+    } else if (direction == DOWN && nextBelow(floor - 1) == NONE) {
+      up |= upCalls.remove(floor);
+    }
+    servedFloor = floor;
+    servedDirection = up == down ? IDLE : up ? UP : DOWN;
+  }
+
+  /**
+   * Choose the floor to stop at next, idle elevator goes to the nearest floor first.
+   *
+   * @param current floor where elevator is now
+   * @return floor to go to or {@link #NONE} if there are no requests
+   */
+  public int next(int current) {
+    current -= lowestFloor;
+    if (isEmpty()) {
+      direction = IDLE;
+      return NONE;
+    }
+    if (direction == IDLE) {
+      int higher = nextAbove(current);
+      int lower = nextBelow(current);
+      direction = lower == NONE || (higher != NONE && higher - current <= current - lower) ? UP : DOWN;
+    }
+    int ahead = direction == UP ? nextAbove(current) : nextBelow(current);
+    if (ahead == NONE) {
+      direction = -direction;
+      ahead = direction == UP ? nextAbove(current) : nextBelow(current);
+    }
+    return ahead == NONE ? NONE : ahead + lowestFloor;
+  }
+
+  /**
+   * Choose the next stop requested from inside of elevator, calls from floors are passed by,
+   * as full elevator does until somebody gets out.
+   *
+   * @param current floor where elevator is now
+   * @return floor to go to or {@link #NONE} if nobody inside requested a stop
+   */
+  public int nextStop(int current) {
+    current -= lowestFloor;
+    if (stops.isEmpty()) {
+      return NONE;
+    }
+    if (direction == IDLE) {
+      int higher = stops.nextFloor(current);
+      int lower = stops.previousFloor(current);
+      direction = lower == NONE || (higher != NONE && higher - current <= current - lower) ? UP : DOWN;
+    }
+    int ahead = direction == UP ? stops.nextFloor(current) : stops.previousFloor(current);
+    if (ahead == NONE) {
+      direction = -direction;
+      ahead = direction == UP ? stops.nextFloor(current) : stops.previousFloor(current);
+    }
+    return ahead + lowestFloor;
+  }
+
+  /**
+   * Direction elevator is going to leave floor in after stop there is removed,
+   * so people waiting to go the other way don't get in.
+   *
+   * @param current floor where elevator stands
+   * @return {@link #UP}, {@link #DOWN} or {@link #IDLE} if there are no other requests
+   */
+  public int departureDirection(int current) {
+    current -= lowestFloor;
+    if (current == servedFloor && servedDirection != IDLE) {
+      // people called elevator here to go that way, they choose their floors once they get in
+      return servedDirection;
+    }
+    int higher = nextAbove(current + 1);
+    int lower = nextBelow(current - 1);
+    if (higher == NONE && lower == NONE) {
+      return IDLE;
+    }
+    if (direction == UP) {
+      return higher != NONE ? UP : DOWN;
+    }
+    if (direction == DOWN) {
+      return lower != NONE ? DOWN : UP;
+    }
+    return lower == NONE || (higher != NONE && higher - current <= current - lower) ? UP : DOWN;
+  }
+
+  /**
+   * @param direction direction to go in, {@link #UP}, {@link #DOWN} or {@link #IDLE} to choose by nearest floor
+   */
+  public void setDirection(int direction) {
+    this.direction = Integer.signum(direction);
+  }
+
+  /**
+   * @return current direction of travel
+   */
+  public int getDirection() {
+    return direction;
+  }
+
+  public boolean isEmpty() {
+    return stops.isEmpty() && upCalls.isEmpty() && downCalls.isEmpty();
+  }
+
+  /**
+   * @return number of requests, a floor called both ways is counted twice
+   */
+  public int size() {
+    return stops.size() + upCalls.size() + downCalls.size();
+  }
+
+  /**
+   * Forget every request.
+   */
+  public void clear() {
+    stops.clear();
+    upCalls.clear();
+    downCalls.clear();
+    direction = IDLE;
+    servedFloor = NONE;
+  }
+
+  /**
+   * @return floors to stop at whatever direction elevator goes in, in ascending order
+   */
+  int[] getStops() {
+    return floors(stops);
+  }
+
+  /**
+   * @return floors called from to go up, in ascending order
+   */
+  int[] getUpCalls() {
+    return floors(upCalls);
+  }
+
+  /**
+   * @return floors called from to go down, in ascending order
+   */
+  int[] getDownCalls() {
+    return floors(downCalls);
+  }
+
+  /**
+   * @return requested floors in ascending order
+   */
+  public List<Integer> toList() {
+    List<Integer> floors = new ArrayList<>(size());
+    for (int f = nextRequested(0); f != NONE; f = nextRequested(f + 1)) {
+      floors.add(f + lowestFloor);
+    }
+    return floors;
+  }
+
+  /**
+   * The nearest floor from given one going up where elevator has to stop:
+   * a stop or call to go up on the way or the farthest call to go down to turn back at.
+   */
+  private int nextAbove(int from) {
+    int stop = FloorRequestSet.nextFloor(stops, upCalls, from);
+    if (stop != NONE) {
+      return stop;
+    }
+    int turn = downCalls.previousFloor(Integer.MAX_VALUE);
+    return turn >= from ? turn : NONE;
+  }
+
+  /**
+   * The nearest floor from given one going down where elevator has to stop:
+   * a stop or call to go down on the way or the farthest call to go up to turn back at.
+   */
+  private int nextBelow(int from) {
+    int stop = FloorRequestSet.previousFloor(stops, downCalls, from);
+    if (stop != NONE) {
+      return stop;
+    }
+    int turn = upCalls.nextFloor(0);
+    return turn != NONE && turn <= from ? turn : NONE;
+  }
+
+  private int[] floors(FloorRequestSet set) {
+    int[] floors = new int[set.size()];
+    int i = 0;
+    for (int f = set.nextFloor(0); f != NONE; f = set.nextFloor(f + 1)) {
+      floors[i++] = f + lowestFloor;
+    }
+    return floors;
+  }
+
+  private int nextRequested(int from) {
+    int stop = FloorRequestSet.nextFloor(stops, upCalls, from);
+    int down = downCalls.nextFloor(from);
+    return stop == NONE ? down : down == NONE ? stop : Math.min(stop, down);
+  }
+}
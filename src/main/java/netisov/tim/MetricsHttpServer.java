@@ -0,0 +1,60 @@
+package netisov.tim;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves metrics as plain text at /metrics on the loopback address only.
+ */
+public final class MetricsHttpServer implements Closeable {
+  private final HttpServer server;
+
+  /**
+   * Start serving metrics.
+   *
+   * @param registry metrics to serve
+   * @param port     port to listen on, 0 for any free one
+   * @throws IOException if port can't be bound
+   */
+  public MetricsHttpServer(MetricsRegistry registry, int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", exchange -> respond(exchange, registry));
+    server.start();
+  }
+
+  /**
+   * @return port server listens on
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = registry.toText().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package netisov.tim;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named metrics of elevators: values read on demand and histograms, which are shown
+ * as their count and percentiles. Metrics are updated by their owners without knowing
+ * about registry, so reading them costs nothing to elevators until somebody asks.
+ * They can be read as text, over HTTP with {@link MetricsHttpServer} and over JMX.
+ */
+public final class MetricsRegistry {
+  private final Map<String, LongSupplier> values = new ConcurrentSkipListMap<>();
+  private final Map<String, Supplier<LatencyHistogram>> histograms = new ConcurrentSkipListMap<>();
+
+  /**
+   * @param name  name of metric
+   * @param value function reading it
+   */
+  public void register(String name, LongSupplier value) {
+    values.put(name, value);
+  }
+
+  /**
+   * @param name      name of metric
+   * @param histogram function taking snapshot of histogram
+   */
+  public void registerHistogram(String name, Supplier<LatencyHistogram> histogram) {
+    histograms.put(name, histogram);
+  }
+
+  /**
+   * Register counters of an elevator.
+   *
+   * @param prefix   prefix of metric names, like elevator.1
+   * @param elevator elevator
+   */
+  public void register(String prefix, Elevator elevator) {
+    ElevatorMetrics metrics = elevator.getMetrics();
+    register(prefix + ".floor", () -> elevator.getState().getCurrentFloor());
+    register(prefix + ".floors_travelled", metrics::getFloorsTravelled);
+    register(prefix + ".door_cycles", metrics::getDoorCycles);
+    register(prefix + ".calls_queued", metrics::getCallsQueued);
+    register(prefix + ".calls_accepted", metrics::getCallsAccepted);
+    register(prefix + ".calls_served", metrics::getCallsServed);
+    register(prefix + ".moving_millis", metrics::getMovingMillis);
+    register(prefix + ".door_millis", metrics::getDoorMillis);
+    register(prefix + ".idle_millis", metrics::getIdleMillis);
+  }
+
+  /**
+   * @return current values of all metrics by name in alphabetical order,
+   * a histogram gives values named with suffixes .count, .p50, .p99, .p999 and .max
+   */
+  public Map<String, Long> read() {
+    Map<String, Long> result = new TreeMap<>();
+    values.forEach((name, value) -> result.put(name, value.getAsLong()));
+    histograms.forEach((name, supplier) -> {
+      LatencyHistogram histogram = supplier.get();
+      result.put(name + ".count", histogram.getCount());
+      result.put(name + ".p50", histogram.getValueAtPercentile(50));
+      result.put(name + ".p99", histogram.getValueAtPercentile(99));
+      result.put(name + ".p999", histogram.getValueAtPercentile(99.9));
+      result.put(name + ".max", histogram.getMax());
+    });
+    return result;
+  }
+
+  /**
+   * @return metrics as lines of name and value separated with a space
+   */
+  public String toText() {
+    StringBuilder text = new StringBuilder();
+    read().forEach((name, value) -> text.append(name).append(' ').append(value).append('\n'));
+    return text.toString();
+  }
+
+  /**
+   * Make metrics readable over JMX as attributes of a bean.
+   *
+   * @param objectName name of bean, like netisov.tim:type=Elevators
+   * @throws JMException if bean can't be registered
+   */
+  public void registerMBean(String objectName) throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(objectName);
+    try {
+      server.registerMBean(new MetricsBean(), name);
+    } catch (InstanceAlreadyExistsException e) {
+      server.unregisterMBean(name);
+      server.registerMBean(new MetricsBean(), name);
+    }
+  }
+
+  private final class MetricsBean implements DynamicMBean {
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Long value = read().get(attribute);
+      if (value == null) {
+        throw new AttributeNotFoundException(attribute);
+      }
+      return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+      throw new UnsupportedOperationException("Metrics are read only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      Map<String, Long> metrics = read();
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        Long value = metrics.get(attribute);
+        if (value != null) {
+          list.add(new Attribute(attribute, value));
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+      throw new UnsupportedOperationException("There are no operations");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      Map<String, Long> metrics = read();
+      MBeanAttributeInfo[] attributes = metrics.keySet().stream()
+          .map(name -> new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false))
+          .toArray(MBeanAttributeInfo[]::new);
+      return new MBeanInfo(MetricsRegistry.class.getName(), "Metrics of elevators", attributes, null, null, null);
+    }
+  }
+}
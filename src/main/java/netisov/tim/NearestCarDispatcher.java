@@ -0,0 +1,31 @@
+package netisov.tim;
+
+import java.util.List;
+
+/**
+ * Sends the elevator which is the nearest to the floor,
+ * the less busy one wins if there are several of them.
+ */
+public final class NearestCarDispatcher implements Dispatcher {
+
+  @Override
+  public int dispatch(int floor, List<Elevator> elevators, int[] assignedCalls) {
+    int best = -1;
+    int bestDistance = Integer.MAX_VALUE;
+    for (int i = 0; i < elevators.size(); i++) {
+      Elevator elevator = elevators.get(i);
+      if (!elevator.serves(floor)) {
+        continue;
+      }
+      int distance = Math.abs(elevator.getState().getCurrentFloor() - floor);
+      if (distance < bestDistance || (distance == bestDistance && assignedCalls[i] < assignedCalls[best])) {
+        best = i;
+        bestDistance = distance;
+      }
+    }
+    if (best < 0) {
+      throw new IllegalArgumentException("No elevator stops at floor " + floor);
+    }
+    return best;
+  }
+}
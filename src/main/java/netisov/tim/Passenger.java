@@ -0,0 +1,72 @@
+package netisov.tim;
+
+/**
+ * A person who comes to a floor at some time and wants to get to another floor.
+ */
+public final class Passenger {
+  private final long arrivalTime;
+  private final int origin;
+  private final int destination;
+  private long boardingTime = -1;
+  private long exitTime = -1;
+
+  /**
+   * @param arrivalTime time person comes to elevator, in milliseconds
+   * @param origin      floor where person calls elevator
+   * @param destination floor person wants to get to
+   */
+  public Passenger(long arrivalTime, int origin, int destination) {
+    if (origin == destination) {
+      throw new IllegalArgumentException("Passenger is already at floor " + destination);
+    }
+    this.arrivalTime = arrivalTime;
+    this.origin = origin;
+    this.destination = destination;
+  }
+
+  public long getArrivalTime() {
+    return arrivalTime;
+  }
+
+  public int getOrigin() {
+    return origin;
+  }
+
+  public int getDestination() {
+    return destination;
+  }
+
+  /**
+   * @return {@link LookScheduler#UP} or {@link LookScheduler#DOWN}
+   */
+  public int getDirection() {
+    return destination > origin ? LookScheduler.UP : LookScheduler.DOWN;
+  }
+
+  /**
+   * @return time person got in elevator or -1 if still waiting
+   */
+  public long getBoardingTime() {
+    return boardingTime;
+  }
+
+  /**
+   * @return time person got out at destination or -1 if not there yet
+   */
+  public long getExitTime() {
+    return exitTime;
+  }
+
+  void boarded(long time) {
+    boardingTime = time;
+  }
+
+  void exited(long time) {
+    exitTime = time;
+  }
+
+  @Override
+  public String toString() {
+    return "Passenger from " + origin + " to " + destination + " at " + arrivalTime;
+  }
+}
@@ -0,0 +1,23 @@
+package netisov.tim;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock going with the wall time, waiting really blocks current thread.
+ */
+public final class RealTimeClock implements Clock {
+  public static final RealTimeClock INSTANCE = new RealTimeClock();
+
+  private RealTimeClock() {
+  }
+
+  @Override
+  public long millis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  @Override
+  public void sleep(long millis) throws InterruptedException {
+    Thread.sleep(millis);
+  }
+}
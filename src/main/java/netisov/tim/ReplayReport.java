@@ -0,0 +1,115 @@
+package netisov.tim;
+
+/**
+ * Figures of a traffic replay.
+ */
+public final class ReplayReport {
+  private final long passengers;
+  private final long delivered;
+  private final long simulatedMillis;
+  private final long wallNanos;
+  private final LatencyHistogram waitTimes;
+  private final LatencyHistogram rideTimes;
+  private final double averageTripMillis;
+
+  ReplayReport(long passengers, long delivered, long simulatedMillis, long wallNanos,
+               LatencyHistogram waitTimes, LatencyHistogram rideTimes, double averageTripMillis) {
+    this.passengers = passengers;
+    this.delivered = delivered;
+    this.simulatedMillis = simulatedMillis;
+    this.wallNanos = wallNanos;
+    this.waitTimes = waitTimes;
+    this.rideTimes = rideTimes;
+    this.averageTripMillis = averageTripMillis;
+  }
+
+  /**
+   * @return number of passengers in trace
+   */
+  public long getPassengers() {
+    return passengers;
+  }
+
+  /**
+   * @return number of passengers who got to their destination
+   */
+  public long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * @return time from the first arrival till the last passenger got out, in simulated milliseconds
+   */
+  public long getSimulatedMillis() {
+    return simulatedMillis;
+  }
+
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /**
+   * @return passengers delivered per simulated hour
+   */
+  public double getPassengersPerHour() {
+    return simulatedMillis == 0 ? 0 : delivered * 3_600_000.0 / simulatedMillis;
+  }
+
+  /**
+   * @return passengers replayed per wall clock second
+   */
+  public double getPassengersPerSecond() {
+    return wallNanos == 0 ? 0 : passengers * 1e9 / wallNanos;
+  }
+
+  /**
+   * @return average time from arrival till getting in elevator, in milliseconds
+   */
+  public double getAverageWaitMillis() {
+    return waitTimes.getMean();
+  }
+
+  public long getMaxWaitMillis() {
+    return waitTimes.getMax();
+  }
+
+  /**
+   * @return times from arrival till getting in elevator, in milliseconds
+   */
+  public LatencyHistogram getWaitTimes() {
+    return waitTimes;
+  }
+
+  /**
+   * @return times from getting in elevator till getting out at destination, in milliseconds
+   */
+  public LatencyHistogram getRideTimes() {
+    return rideTimes;
+  }
+
+  /**
+   * @return average time from arrival till getting out at destination, in milliseconds
+   */
+  public double getAverageTripMillis() {
+    return averageTripMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Passengers: %d, delivered: %d%n"
+            + "Simulated time: %.1f s, replayed in %.3f s (%.0f passengers per second)%n"
+            + "Handling capacity: %.1f passengers per hour%n"
+            + "Wait time: average %.1f s, %s%n"
+            + "Ride time: average %.1f s, %s%n"
+            + "Trip time: average %.1f s",
+        passengers, delivered, simulatedMillis / 1000.0, wallNanos / 1e9, getPassengersPerSecond(),
+        getPassengersPerHour(), waitTimes.getMean() / 1000.0, percentiles(waitTimes),
+        rideTimes.getMean() / 1000.0, percentiles(rideTimes), averageTripMillis / 1000.0);
+  }
+
+  private static String percentiles(LatencyHistogram histogram) {
+    return String.format("p50 %.1f s, p99 %.1f s, p99.9 %.1f s, max %.1f s",
+        histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+  }
+}
@@ -0,0 +1,52 @@
+package netisov.tim;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.function.Function;
+
+/**
+ * One simulation of a building: its elevators, the way calls are dispatched
+ * and passengers coming with a particular seed.
+ */
+@Getter
+@Builder
+public final class Scenario {
+  /**
+   * Name to group results by, like dispatch policy.
+   */
+  @Builder.Default
+  private final String name = "default";
+  private final long seed;
+  @Builder.Default
+  private final BuildingTopology topology = BuildingTopology.ofFloors(10);
+  @Builder.Default
+  private final int numElevators = 1;
+  /**
+   * Meters per second.
+   */
+  @Builder.Default
+  private final int speed = 2;
+  /**
+   * Floor height in meters.
+   */
+  @Builder.Default
+  private final int floorHeight = 4;
+  /**
+   * Door opening/closing timeout in seconds.
+   */
+  @Builder.Default
+  private final int doorTimeout = 2;
+  @Builder.Default
+  private final int capacity = Elevator.UNLIMITED_CAPACITY;
+  /**
+   * Time door stays opened at stops, null to keep it opened for door timeout.
+   */
+  private final DoorDwell doorDwell;
+  /**
+   * Makes a dispatcher for each run, so runs don't share it.
+   */
+  @Builder.Default
+  private final Function<BuildingTopology, Dispatcher> dispatcher = t -> new NearestCarDispatcher();
+  private final TrafficSource traffic;
+}
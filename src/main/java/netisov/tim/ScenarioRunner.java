@@ -0,0 +1,120 @@
+package netisov.tim;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs many independent simulations in parallel on a fork-join pool,
+ * every one of them has its own simulation clock and elevators, so nothing is shared
+ * but the array of results, and figures merged in order of scenarios are the same
+ * whatever number of threads they run on.
+ */
+public final class ScenarioRunner {
+  private final ForkJoinPool pool;
+
+  /**
+   * Runner using all cores.
+   */
+  public ScenarioRunner() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param pool pool to run simulations on
+   */
+  public ScenarioRunner(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @param scenarios scenarios to run
+   * @return reports in the same order as scenarios
+   */
+  public List<ReplayReport> run(List<Scenario> scenarios) {
+    ReplayReport[] reports = new ReplayReport[scenarios.size()];
+    pool.invoke(new RunScenarios(scenarios, reports, 0, reports.length));
+    return Arrays.asList(reports);
+  }
+
+  /**
+   * Run scenarios and add up figures of those with the same name.
+   *
+   * @param scenarios scenarios to run
+   * @return summaries by name in order names first appear in scenarios
+   */
+  public Map<String, ScenarioSummary> runAndSummarize(List<Scenario> scenarios) {
+    return summarize(scenarios, run(scenarios));
+  }
+
+  /**
+   * @param scenarios scenarios which are run
+   * @param reports   their reports in the same order
+   * @return summaries by name in order names first appear in scenarios
+   */
+  public static Map<String, ScenarioSummary> summarize(List<Scenario> scenarios, List<ReplayReport> reports) {
+    Map<String, ScenarioSummary> summaries = new LinkedHashMap<>();
+    for (int i = 0; i < scenarios.size(); i++) {
+      summaries.computeIfAbsent(scenarios.get(i).getName(), ScenarioSummary::new).add(reports.get(i));
+    }
+    return summaries;
+  }
+
+  /**
+   * Run one scenario on calling thread.
+   *
+   * @param scenario scenario to run
+   * @return figures of the run
+   */
+  public static ReplayReport run(Scenario scenario) {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    service.createElevators(scenario.getNumElevators(), scenario.getSpeed(), scenario.getFloorHeight(),
+        scenario.getDoorTimeout(), clock, ServedFloors.all(scenario.getTopology()));
+    service.getElevators().forEach(e -> e.setCapacity(scenario.getCapacity()));
+    if (scenario.getDoorDwell() != null) {
+      service.setDoorDwell(scenario.getDoorDwell());
+    }
+    service.setDispatcher(scenario.getDispatcher().apply(scenario.getTopology()));
+    try {
+      return new TrafficReplay(service, clock)
+          .replay(scenario.getTraffic().passengers(scenario.getSeed(), scenario.getTopology()));
+    } finally {
+      try {
+        service.shutdown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static final class RunScenarios extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Scenario> scenarios;
+    private final ReplayReport[] reports;
+    private final int from;
+    private final int to;
+
+    RunScenarios(List<Scenario> scenarios, ReplayReport[] reports, int from, int to) {
+      this.scenarios = scenarios;
+      this.reports = reports;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        reports[from] = run(scenarios.get(from));
+      } else if (to > from) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RunScenarios(scenarios, reports, from, middle), new RunScenarios(scenarios, reports, middle, to));
+      }
+    }
+  }
+}
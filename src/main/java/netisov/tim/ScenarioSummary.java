@@ -0,0 +1,80 @@
+package netisov.tim;
+
+/**
+ * Figures of several runs of scenarios with the same name added up.
+ */
+public final class ScenarioSummary {
+  private final String name;
+  private final LatencyHistogram waitTimes = new LatencyHistogram();
+  private final LatencyHistogram rideTimes = new LatencyHistogram();
+  private int runs;
+  private long passengers;
+  private long delivered;
+  private long simulatedMillis;
+  private double tripMillis;
+
+  ScenarioSummary(String name) {
+    this.name = name;
+  }
+
+  void add(ReplayReport report) {
+    runs++;
+    passengers += report.getPassengers();
+    delivered += report.getDelivered();
+    simulatedMillis += report.getSimulatedMillis();
+    tripMillis += report.getAverageTripMillis() * report.getDelivered();
+    waitTimes.add(report.getWaitTimes());
+    rideTimes.add(report.getRideTimes());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getRuns() {
+    return runs;
+  }
+
+  public long getPassengers() {
+    return passengers;
+  }
+
+  public long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * @return passengers delivered per simulated hour, on average of runs
+   */
+  public double getPassengersPerHour() {
+    return simulatedMillis == 0 ? 0 : delivered * 3_600_000.0 / simulatedMillis;
+  }
+
+  /**
+   * @return times from arrival till getting in elevator of all runs, in milliseconds
+   */
+  public LatencyHistogram getWaitTimes() {
+    return waitTimes;
+  }
+
+  /**
+   * @return times from getting in elevator till getting out of all runs, in milliseconds
+   */
+  public LatencyHistogram getRideTimes() {
+    return rideTimes;
+  }
+
+  /**
+   * @return average time from arrival till getting out at destination, in milliseconds
+   */
+  public double getAverageTripMillis() {
+    return delivered == 0 ? 0 : tripMillis / delivered;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d runs, %d passengers, %.1f passengers per hour%n"
+            + "  wait %s ms%n  ride %s ms%n  trip average %.1f s",
+        name, runs, delivered, getPassengersPerHour(), waitTimes, rideTimes, getAverageTripMillis() / 1000.0);
+  }
+}
@@ -0,0 +1,78 @@
+package netisov.tim;
+
+/**
+ * Floors where particular elevator stops, like local floors of a zone
+ * plus lobby for an express elevator. Elevator passes other floors without stopping.
+ */
+public final class ServedFloors {
+  private final BuildingTopology topology;
+  private final FloorRequestSet floors;
+
+  private ServedFloors(BuildingTopology topology) {
+    this.topology = topology;
+    this.floors = new FloorRequestSet(topology.getNumFloors());
+  }
+
+  /**
+   * @param topology building
+   * @return every floor of the building
+   */
+  public static ServedFloors all(BuildingTopology topology) {
+    return range(topology, topology.getLowestFloor(), topology.getHighestFloor());
+  }
+
+  /**
+   * @param topology building
+   * @param from     the lowest served floor
+   * @param to       the highest served floor
+   * @return floors from one to another inclusive
+   */
+  public static ServedFloors range(BuildingTopology topology, int from, int to) {
+    return new ServedFloors(topology).with(from, to);
+  }
+
+  /**
+   * @param topology building
+   * @param floors   served floors
+   * @return particular floors
+   */
+  public static ServedFloors of(BuildingTopology topology, int... floors) {
+    ServedFloors served = new ServedFloors(topology);
+    for (int floor : floors) {
+      served.with(floor, floor);
+    }
+    return served;
+  }
+
+  /**
+   * Add more served floors, like a sky lobby.
+   *
+   * @param from the lowest floor to add
+   * @param to   the highest floor to add
+   * @return this
+   */
+  public ServedFloors with(int from, int to) {
+    for (int floor = from; floor <= to; floor++) {
+      if (!topology.contains(floor)) {
+        throw new IllegalArgumentException("Building has no floor " + floor);
+      }
+      floors.add(topology.toIndex(floor));
+    }
+    return this;
+  }
+
+  public boolean serves(int floor) {
+    return topology.contains(floor) && floors.contains(topology.toIndex(floor));
+  }
+
+  /**
+   * @return the lowest served floor
+   */
+  public int getLowestFloor() {
+    return topology.toFloor(floors.nextFloor(0));
+  }
+
+  public BuildingTopology getTopology() {
+    return topology;
+  }
+}
@@ -0,0 +1,136 @@
+package netisov.tim;
+
+import java.util.PriorityQueue;
+
+/**
+ * Discrete-event clock, time does not go by itself but jumps
+ * from one scheduled event to another, so elevator runs
+ * as fast as CPU allows.
+ * Events with the same timestamp are executed in order they have been scheduled.
+ * Not thread safe, it's meant to be driven by a single simulation thread.
+ */
+public final class SimulationClock implements Clock {
+  private final PriorityQueue<ScheduledEvent> events = new PriorityQueue<>();
+  private long now;
+  private long sequence;
+
+  public SimulationClock() {
+    this(0);
+  }
+
+  /**
+   * @param startMillis initial time of the clock
+   */
+  public SimulationClock(long startMillis) {
+    this.now = startMillis;
+  }
+
+  @Override
+  public long millis() {
+    return now;
+  }
+
+  /**
+   * Waiting in simulated time just moves clock forward,
+   * firing events which are due in the meantime.
+   *
+   * @param millis time to wait in milliseconds
+   */
+  @Override
+  public void sleep(long millis) {
+    advanceTo(now + millis);
+  }
+
+  /**
+   * Schedule an action after some delay from now.
+   *
+   * @param delayMillis delay in milliseconds
+   * @param action      action to execute
+   */
+  public void schedule(long delayMillis, Runnable action) {
+    scheduleAt(now + delayMillis, action);
+  }
+
+  /**
+   * Schedule an action at particular time, if time is
+   * in the past action is executed at current time.
+   *
+   * @param timeMillis time of execution
+   * @param action     action to execute
+   */
+  public void scheduleAt(long timeMillis, Runnable action) {
+    events.add(new ScheduledEvent(Math.max(timeMillis, now), sequence++, action));
+  }
+
+  /**
+   * Move the clock to particular time executing all events due until then.
+   *
+   * @param timeMillis time to move to
+   */
+  public void advanceTo(long timeMillis) {
+    ScheduledEvent event;
+    while ((event = events.peek()) != null && event.time <= timeMillis) {
+      events.poll();
+      now = event.time;
+      event.action.run();
+    }
+    now = Math.max(now, timeMillis);
+  }
+
+  /**
+   * Execute next scheduled event moving the clock to its time.
+   *
+   * @return false if there were no events to execute
+   */
+  public boolean runNext() {
+    ScheduledEvent event = events.poll();
+    if (event == null) {
+      return false;
+    }
+    now = event.time;
+    event.action.run();
+    return true;
+  }
+
+  /**
+   * Execute events until there are no more of them.
+   */
+  public void run() {
+    while (runNext()) {
+      // keep going
+    }
+  }
+
+  /**
+   * @return time of the next event, {@link Long#MAX_VALUE} if there are no events
+   */
+  long nextEventTime() {
+    ScheduledEvent event = events.peek();
+    return event != null ? event.time : Long.MAX_VALUE;
+  }
+
+  /**
+   * @return number of events waiting to be executed
+   */
+  public int pendingEvents() {
+    return events.size();
+  }
+
+  private static final class ScheduledEvent implements Comparable<ScheduledEvent> {
+    private final long time;
+    private final long sequence;
+    private final Runnable action;
+
+    private ScheduledEvent(long time, long sequence, Runnable action) {
+      this.time = time;
+      this.sequence = sequence;
+      this.action = action;
+    }
+
+    @Override
+    public int compareTo(ScheduledEvent o) {
+      int result = Long.compare(time, o.time);
+      return result != 0 ? result : Long.compare(sequence, o.sequence);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package netisov.tim;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Passengers made up by a seeded random generator: they come one by one at random times
+ * at a given average rate (Poisson arrivals) and go between floors the way people do
+ * at particular time of day, more people live or work on floors of bigger population.
+ * Passengers are made when they're asked for, so memory doesn't depend on their number
+ * and billions of them can be replayed the same way again with the same seed.
+ * <pre>
+ * TrafficSource traffic = SyntheticTraffic.builder().pattern(SyntheticTraffic.Pattern.UP_PEAK)
+ *     .passengersPerHour(1200).passengers(100_000).build();
+ * new TrafficReplay(service, clock).replay(traffic.passengers(seed, topology));
+ * </pre>
+ */
+@Getter
+@Builder
+public final class SyntheticTraffic implements TrafficSource {
+  private static final double MILLIS_PER_HOUR = 3_600_000;
+
+  /**
+   * Kind of traffic by share of people coming to the lobby from other floors and the other way.
+   */
+  public enum Pattern {
+    /**
+     * Morning, almost everybody comes in from the lobby.
+     */
+    UP_PEAK(0.85, 0.05),
+    /**
+     * Evening, almost everybody leaves to the lobby.
+     */
+    DOWN_PEAK(0.05, 0.85),
+    /**
+     * Lunch time, people go out and come back.
+     */
+    LUNCH(0.45, 0.45),
+    /**
+     * Middle of the day, people go between floors above lobby.
+     */
+    INTER_FLOOR(0, 0);
+
+    private final double incoming;
+    private final double outgoing;
+
+    Pattern(double incoming, double outgoing) {
+      this.incoming = incoming;
+      this.outgoing = outgoing;
+    }
+
+    /**
+     * @return share of people going from lobby to other floors
+     */
+    public double getIncoming() {
+      return incoming;
+    }
+
+    /**
+     * @return share of people going from other floors to lobby
+     */
+    public double getOutgoing() {
+      return outgoing;
+    }
+  }
+
+  @Builder.Default
+  private final Pattern pattern = Pattern.INTER_FLOOR;
+  /**
+   * Average number of people coming per hour.
+   */
+  @Builder.Default
+  private final double passengersPerHour = 600;
+  /**
+   * Number of people to make, {@link Long#MAX_VALUE} never to stop.
+   */
+  @Builder.Default
+  private final long passengers = 1000;
+  /**
+   * Floor people come in from the street, null for {@link ElevatorState#DEFAULT_FLOOR}
+   * or the lowest floor if building doesn't have it.
+   */
+  private final Integer lobby;
+  /**
+   * Number of people on every floor starting from the lowest one, null for the same on every floor.
+   * Population of lobby doesn't matter.
+   */
+  private final int[] populations;
+
+  @Override
+  public Iterator<Passenger> passengers(long seed, BuildingTopology topology) {
+    if (topology.getNumFloors() < 2) {
+      throw new IllegalArgumentException("There is nowhere to go in a building of one floor");
+    }
+    if (!(passengersPerHour > 0)) {
+      throw new IllegalArgumentException("Passengers per hour should be positive: " + passengersPerHour);
+    }
+    int lobbyFloor = lobby != null ? lobby
+        : topology.contains(ElevatorState.DEFAULT_FLOOR) ? ElevatorState.DEFAULT_FLOOR : topology.getLowestFloor();
+    if (!topology.contains(lobbyFloor)) {
+      throw new IllegalArgumentException("Lobby " + lobbyFloor + " is not in building");
+    }
+    if (populations != null && populations.length != topology.getNumFloors()) {
+      throw new IllegalArgumentException("Populations of " + populations.length + " floors are given for building of "
+          + topology.getNumFloors() + " floors");
+    }
+    return new Generator(seed, topology, lobbyFloor);
+  }
+
+  private final class Generator implements Iterator<Passenger> {
+    private final SplittableRandom random;
+    private final BuildingTopology topology;
+    private final int lobbyFloor;
+    // population of floors other than lobby summed up to every one of them
+    private final long[] cumulative;
+    private final boolean interFloor;
+    private final double meanGapMillis = MILLIS_PER_HOUR / passengersPerHour;
+    private double time;
+    private long made;
+
+    Generator(long seed, BuildingTopology topology, int lobbyFloor) {
+      this.random = new SplittableRandom(seed);
+      this.topology = topology;
+      this.lobbyFloor = lobbyFloor;
+      this.cumulative = new long[topology.getNumFloors() - 1];
+      long sum = 0;
+      int populated = 0;
+      for (int i = 0; i < cumulative.length; i++) {
+        int population = populations != null ? populations[toIndex(i)] : 1;
+        if (population < 0) {
+          throw new IllegalArgumentException("Population of floor " + floor(i) + " is negative: " + population);
+        }
+        populated += population > 0 ? 1 : 0;
+        sum += population;
+        cumulative[i] = sum;
+      }
+      if (sum == 0) {
+        throw new IllegalArgumentException("Nobody lives above or below lobby");
+      }
+      // people can't go between floors if only one floor is populated
+      this.interFloor = populated > 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return made < passengers;
+    }
+
+    @Override
+    public Passenger next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      made++;
+      time += -Math.log(1 - random.nextDouble()) * meanGapMillis;
+      double kind = random.nextDouble();
+      double lobbyShare = pattern.incoming + pattern.outgoing;
+      if (!interFloor || kind < lobbyShare) {
+        // with nobody to visit on other floors everybody goes through lobby in the same proportion
+        boolean incoming = interFloor ? kind < pattern.incoming
+            : kind < (lobbyShare == 0 ? 0.5 : pattern.incoming / lobbyShare);
+        int floor = floor(choose());
+        return incoming ? new Passenger((long) time, lobbyFloor, floor) : new Passenger((long) time, floor, lobbyFloor);
+      }
+      int origin = choose();
+      int destination;
+      do {
+        destination = choose();
+      } while (destination == origin);
+      return new Passenger((long) time, floor(origin), floor(destination));
+    }
+
+    /**
+     * @return position of a floor other than lobby, more populated floors are chosen more often
+     */
+    private int choose() {
+      long ticket = random.nextLong(cumulative[cumulative.length - 1]);
+      int low = 0;
+      int high = cumulative.length - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (cumulative[middle] > ticket) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Floors other than lobby are numbered from 0 skipping lobby.
+     */
+    private int toIndex(int position) {
+      return position >= topology.toIndex(lobbyFloor) ? position + 1 : position;
+    }
+
+    private int floor(int position) {
+      return topology.getLowestFloor() + toIndex(position);
+    }
+  }
+}
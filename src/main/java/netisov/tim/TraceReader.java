@@ -0,0 +1,73 @@
+package netisov.tim;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads recorded traffic line by line, so trace of any size takes constant memory.
+ * Every line is a passenger: time in milliseconds, origin floor and destination floor
+ * separated with commas or spaces. Empty lines and lines starting with # are skipped.
+ * Records should go in order of time.
+ */
+public final class TraceReader implements Iterator<Passenger>, Closeable {
+  private final BufferedReader reader;
+  private Passenger next;
+  private long lineNumber;
+
+  public TraceReader(Reader reader) {
+    this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = readNext();
+    }
+    return next != null;
+  }
+
+  @Override
+  public Passenger next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Passenger passenger = next;
+    next = null;
+    return passenger;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private Passenger readNext() {
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("[,\\s]+");
+        if (fields.length != 3) {
+          throw new IllegalArgumentException("Expected time, origin and destination at line " + lineNumber + ": " + line);
+        }
+        try {
+          return new Passenger(Long.parseLong(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Wrong number at line " + lineNumber + ": " + line, e);
+        }
+      }
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package netisov.tim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays passenger traffic against a bank of elevators in simulated time without any user.
+ * Every passenger calls elevator from origin floor, gets in when dispatched elevator
+ * opens door there going his way and has room, and presses the button of destination floor.
+ * Those who don't get in call elevator again when it leaves. People getting in and out
+ * are counted by {@link CarLoad} of elevator, so its {@link DoorDwell} applies.
+ * Passengers are taken from iterator one at a time when the previous one arrives,
+ * so a trace of millions of passengers doesn't have to fit in memory.
+ */
+public final class TrafficReplay {
+  private final ElevatorService service;
+  private final SimulationClock clock;
+  private final List<Map<Integer, Deque<Passenger>>> waiting = new ArrayList<>();
+  private final List<Map<Integer, List<Passenger>>> leftBehind = new ArrayList<>();
+  private final List<Map<Integer, List<Passenger>>> riding = new ArrayList<>();
+  private final int[] boardingDirection;
+  private final LatencyHistogram waitTimes = new LatencyHistogram();
+  private final LatencyHistogram rideTimes = new LatencyHistogram();
+  private long passengers;
+  private long delivered;
+  private long tripSum;
+  private long firstArrival = -1;
+  private long lastExit;
+
+  /**
+   * @param service bank of elevators running on the clock
+   * @param clock   simulation clock
+   */
+  public TrafficReplay(ElevatorService service, SimulationClock clock) {
+    this.service = service;
+    this.clock = clock;
+    List<Elevator> elevators = service.getElevators();
+    boardingDirection = new int[elevators.size()];
+    for (int i = 0; i < elevators.size(); i++) {
+      int car = i;
+      waiting.add(new HashMap<>());
+      leftBehind.add(new HashMap<>());
+      riding.add(new HashMap<>());
+      elevators.get(i).addOpenDoorListener(floor -> doorOpened(car, floor));
+      elevators.get(i).addPassFloorListener(floor -> departed(car, floor));
+    }
+    service.driveControllers(clock);
+  }
+
+  /**
+   * Run the simulation until every passenger gets to destination.
+   *
+   * @param trace passengers in order of arrival
+   * @return figures of the replay
+   */
+  public ReplayReport replay(Iterator<Passenger> trace) {
+    long start = System.nanoTime();
+    scheduleNext(trace);
+    clock.run();
+    long wallNanos = System.nanoTime() - start;
+    return new ReplayReport(passengers, delivered, firstArrival < 0 ? 0 : lastExit - firstArrival, wallNanos,
+        waitTimes, rideTimes, delivered == 0 ? 0 : (double) tripSum / delivered);
+  }
+
+  private void scheduleNext(Iterator<Passenger> trace) {
+    if (!trace.hasNext()) {
+      return;
+    }
+    Passenger passenger = trace.next();
+    if (firstArrival < 0) {
+      firstArrival = passenger.getArrivalTime();
+    }
+    clock.scheduleAt(passenger.getArrivalTime(), () -> {
+      passengers++;
+      arrive(passenger);
+      scheduleNext(trace);
+    });
+  }
+
+  private void arrive(Passenger passenger) {
+    int car = service.submitCall(passenger.getOrigin(), passenger.getDirection());
+    ElevatorState state = service.getElevators().get(car).getState();
+    if (state.isDoorOpened() && state.getCurrentFloor() == passenger.getOrigin()) {
+      // elevator standing here with door opened takes the call before door closes and doesn't open it again
+      if (!canBoard(car, passenger.getDirection())) {
+        leftBehind.get(car).computeIfAbsent(passenger.getOrigin(), f -> new ArrayList<>()).add(passenger);
+        return;
+      }
+      board(car, passenger);
+    } else {
+      waiting.get(car).computeIfAbsent(passenger.getOrigin(), f -> new ArrayDeque<>()).add(passenger);
+    }
+  }
+
+  private void doorOpened(int car, int floor) {
+    List<Passenger> arrived = riding.get(car).remove(floor);
+    if (arrived != null) {
+      long now = clock.millis();
+      for (Passenger passenger : arrived) {
+        passenger.exited(now);
+        rideTimes.record(now - passenger.getBoardingTime());
+        tripSum += now - passenger.getArrivalTime();
+      }
+      delivered += arrived.size();
+      load(car).alight(arrived.size());
+      lastExit = now;
+    }
+    List<Passenger> candidates = new ArrayList<>();
+    List<Passenger> notTaken = leftBehind.get(car).remove(floor);
+    if (notTaken != null) {
+      candidates.addAll(notTaken);
+    }
+    Deque<Passenger> called = waiting.get(car).remove(floor);
+    if (called != null) {
+      candidates.addAll(called);
+    }
+    int direction = service.getControllers().get(car).getDepartureDirection();
+    List<Passenger> left = new ArrayList<>();
+    for (Passenger passenger : candidates) {
+      if (direction == LookScheduler.IDLE) {
+        // the first one to get in chooses where empty elevator goes
+        direction = passenger.getDirection();
+      }
+      if (passenger.getDirection() == direction && load(car).hasRoom()) {
+        board(car, passenger);
+      } else {
+        left.add(passenger);
+      }
+    }
+    boardingDirection[car] = direction;
+    if (!left.isEmpty()) {
+      leftBehind.get(car).put(floor, left);
+    }
+  }
+
+  /**
+   * Elevator leaves the floor, those who didn't get in call again.
+   */
+  private void departed(int car, int floor) {
+    List<Passenger> notTaken = leftBehind.get(car).remove(floor);
+    if (notTaken != null) {
+      notTaken.forEach(this::arrive);
+    }
+  }
+
+  private boolean canBoard(int car, int direction) {
+    if (boardingDirection[car] == LookScheduler.IDLE) {
+      boardingDirection[car] = direction;
+    }
+    return load(car).hasRoom() && boardingDirection[car] == direction;
+  }
+
+  private CarLoad load(int car) {
+    return service.getElevators().get(car).getLoad();
+  }
+
+  private void board(int car, Passenger passenger) {
+    long now = clock.millis();
+    passenger.boarded(now);
+    waitTimes.record(now - passenger.getArrivalTime());
+    load(car).board(1);
+    riding.get(car).computeIfAbsent(passenger.getDestination(), f -> new ArrayList<>()).add(passenger);
+    service.submitCarCall(car, passenger.getDestination());
+  }
+}
@@ -0,0 +1,17 @@
+package netisov.tim;
+
+import java.util.Iterator;
+
+/**
+ * Source of passengers for a simulated building, the same seed has to give the same passengers.
+ */
+@FunctionalInterface
+public interface TrafficSource {
+
+  /**
+   * @param seed     seed of random numbers
+   * @param topology floors of building
+   * @return passengers in order of arrival
+   */
+  Iterator<Passenger> passengers(long seed, BuildingTopology topology);
+}
@@ -0,0 +1,34 @@
+package netisov.tim;
+
+import java.util.List;
+
+/**
+ * Splits the building into contiguous zones of floors,
+ * one zone per elevator, and sends elevator serving the zone of the floor.
+ * If that elevator doesn't stop at the floor the nearest one which does is sent.
+ */
+public final class ZoningDispatcher implements Dispatcher {
+  private final BuildingTopology topology;
+  private final Dispatcher fallback = new NearestCarDispatcher();
+
+  /**
+   * @param numFloors number of floors in the building
+   */
+  public ZoningDispatcher(int numFloors) {
+    this(BuildingTopology.ofFloors(numFloors));
+  }
+
+  /**
+   * @param topology floors of the building
+   */
+  public ZoningDispatcher(BuildingTopology topology) {
+    this.topology = topology;
+  }
+
+  @Override
+  public int dispatch(int floor, List<Elevator> elevators, int[] assignedCalls) {
+    int zoneSize = (topology.getNumFloors() + elevators.size() - 1) / elevators.size();
+    int zone = Math.max(0, Math.min(topology.toIndex(floor) / zoneSize, elevators.size() - 1));
+    return elevators.get(zone).serves(floor) ? zone : fallback.dispatch(floor, elevators, assignedCalls);
+  }
+}
@@ -0,0 +1,111 @@
+package netisov.tim.tests;
+
+import netisov.tim.BankSnapshot;
+import netisov.tim.CarSnapshot;
+import netisov.tim.ElevatorService;
+import netisov.tim.EventJournal;
+import netisov.tim.LookScheduler;
+import netisov.tim.SimulationClock;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class BankSnapshotTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void restoreFromSnapshotAndJournalTail() throws Exception {
+    Path journalDirectory = folder.newFolder("journal").toPath();
+    Path snapshotDirectory = folder.newFolder("snapshots").toPath();
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = bank(clock);
+    BankSnapshot beforeCrash;
+    try (EventJournal journal = new EventJournal(journalDirectory)) {
+      service.setJournal(journal);
+      service.submitCall(7, LookScheduler.DOWN);
+      service.submitCall(4, LookScheduler.UP);
+      service.submitCarCall(2, 9);
+      clock.advanceTo(350);
+      service.snapshot().save(snapshotDirectory);
+
+      service.submitCall(2, LookScheduler.UP);
+      service.submitCarCall(0, 10);
+      clock.advanceTo(1650);
+      beforeCrash = service.snapshot();
+    }
+    service.shutdown();
+
+    ElevatorService restarted = bank(new SimulationClock());
+    restarted.restore(BankSnapshot.loadLatest(snapshotDirectory), journalDirectory);
+    BankSnapshot afterRestart = restarted.snapshot();
+    restarted.shutdown();
+
+    Assert.assertEquals(describe(beforeCrash), describe(afterRestart));
+  }
+
+  @Test
+  public void damagedSnapshotIsSkipped() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    CarSnapshot car = new CarSnapshot(1, 5, true, LookScheduler.UP, -1, new int[]{7}, new int[]{}, new int[]{3});
+    new BankSnapshot(1000, Arrays.asList(car)).save(directory);
+    Path latest = new BankSnapshot(2000, Arrays.asList(car)).save(directory);
+    byte[] bytes = Files.readAllBytes(latest);
+    bytes[bytes.length - 20] ^= 1;
+    Files.write(latest, bytes);
+
+    BankSnapshot loaded = BankSnapshot.loadLatest(directory);
+
+    Assert.assertEquals(1000, loaded.getTime());
+    CarSnapshot loadedCar = loaded.getCars().get(0);
+    Assert.assertEquals(5, loadedCar.getFloor());
+    Assert.assertTrue(loadedCar.isDoorOpened());
+    Assert.assertArrayEquals(new int[]{7}, loadedCar.getStops());
+    Assert.assertArrayEquals(new int[]{3}, loadedCar.getDownCalls());
+  }
+
+  @Test
+  public void onlyLatestSnapshotsAreKept() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    for (int i = 1; i <= 5; i++) {
+      new BankSnapshot(i, Arrays.asList()).save(directory);
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      Assert.assertEquals(2, files.count());
+    }
+    Assert.assertEquals(5, BankSnapshot.loadLatest(directory).getTime());
+  }
+
+  private ElevatorService bank(SimulationClock clock) {
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    for (int i = 0; i < 3; i++) {
+      service.createElevator(speed, floorHeight, doorTimeout, clock);
+    }
+    service.driveControllers(clock);
+    return service;
+  }
+
+  private List<String> describe(BankSnapshot snapshot) {
+    return snapshot.getCars().stream()
+        .map(c -> c.getElevator() + " at " + c.getFloor() + " door " + c.isDoorOpened()
+            + " stops " + Arrays.toString(c.getStops()) + " up " + Arrays.toString(c.getUpCalls())
+            + " down " + Arrays.toString(c.getDownCalls()))
+        .collect(Collectors.toList());
+  }
+}
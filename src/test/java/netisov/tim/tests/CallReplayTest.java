@@ -0,0 +1,150 @@
+package netisov.tim.tests;
+
+import netisov.tim.CallRecorder;
+import netisov.tim.CallReplay;
+import netisov.tim.ElevatorEvent;
+import netisov.tim.ElevatorService;
+import netisov.tim.EventDiff;
+import netisov.tim.LookScheduler;
+import netisov.tim.SimulationClock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(JUnit4.class)
+public class CallReplayTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Test
+  public void recordedCallsAreReplayedTheSameWay() throws Exception {
+    SimulationClock clock = new SimulationClock(5000);
+    ElevatorService service = bank(clock);
+    StringWriter record = new StringWriter();
+    CallRecorder recorder = new CallRecorder(record, clock);
+    service.setCallRecorder(recorder);
+    List<String> recorded = new ArrayList<>();
+    new CallReplay(service, clock, recorded::add);
+    clock.schedule(0, () -> service.submitCall(6, LookScheduler.DOWN));
+    clock.schedule(0, () -> service.submitCall(3, LookScheduler.UP));
+    clock.schedule(250, () -> service.submitCarCall(1, 8));
+    clock.schedule(2500, () -> service.submitCall(1, LookScheduler.UP));
+    clock.run();
+    recorder.close();
+
+    String calls = record.toString();
+    List<String> first = replay(calls);
+    List<String> second = replay(calls);
+
+    Assert.assertTrue(calls.contains("250,CAR,1,8"));
+    Assert.assertEquals(first, second);
+    Assert.assertTrue(first.contains("0 2 CALL_ACCEPTED 3 1"));
+    // the same elevator events as in recorded run and a line for every call
+    Assert.assertEquals(recorded.size() + 4, first.size());
+    Assert.assertEquals(recorded.get(recorded.size() - 1).replaceFirst("^\\d+", ""),
+        first.get(first.size() - 1).replaceFirst("^\\d+", ""));
+  }
+
+  @Test
+  public void interactiveRunIsReplayedTheSameWay() throws Exception {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = bank(clock);
+    StringWriter record = new StringWriter();
+    CallRecorder recorder = new CallRecorder(record, clock);
+    service.setCallRecorder(recorder);
+    List<String> recorded = new ArrayList<>();
+    new CallReplay(service, clock, recorded::add);
+    // like the console app: users call elevators from floors and get in when one comes
+    int[] called = new int[1];
+    for (int i = 0; i < 2; i++) {
+      int index = i;
+      service.getElevators().get(i).addOpenDoorListener(floor -> {
+        if (floor == 4 && called[0] == index) {
+          clock.schedule(1500, () -> {
+            service.submitCarCall(index, 9);
+            service.submitCarCall(index, 2);
+          });
+        }
+      });
+    }
+    clock.schedule(0, () -> called[0] = service.submitCall(4));
+    clock.schedule(3000, () -> service.submitCall(7));
+    clock.run();
+    recorder.close();
+
+    List<String> replayed = replay(record.toString());
+
+    Assert.assertTrue(record.toString().contains("0,HALL,4,0"));
+    Assert.assertEquals(recorded, replayed.stream().filter(e -> !e.contains(ElevatorEvent.Type.CALL_ACCEPTED.name()))
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void destinationCallsAreReplayedTheSameWay() throws Exception {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = bank(clock);
+    service.setDestinationDispatch(500);
+    StringWriter record = new StringWriter();
+    CallRecorder recorder = new CallRecorder(record, clock);
+    service.setCallRecorder(recorder);
+    List<String> recorded = new ArrayList<>();
+    new CallReplay(service, clock, recorded::add);
+    clock.schedule(0, () -> service.submitDestinationCall(1, 8));
+    clock.schedule(200, () -> service.submitDestinationCall(3, 8));
+    clock.schedule(3000, () -> service.submitDestinationCall(9, 2));
+    clock.run();
+    recorder.close();
+
+    List<String> events = new ArrayList<>();
+    SimulationClock replayClock = new SimulationClock();
+    ElevatorService replayed = bank(replayClock);
+    replayed.setDestinationDispatch(500);
+    long calls = new CallReplay(replayed, replayClock, events::add).replay(new StringReader(record.toString()));
+
+    Assert.assertTrue(record.toString().contains("200,DEST,3,8"));
+    Assert.assertEquals(3, calls);
+    Assert.assertTrue(recorded.stream().anyMatch(e -> e.endsWith(" OPEN_DOOR 8")));
+    Assert.assertEquals(recorded, events);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void destinationCallNeedsDestinationDispatch() {
+    replay("0,DEST,3,8\n");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void brokenRecord() {
+    replay("0,HALL,3\n");
+  }
+
+  @Test
+  public void diff() throws Exception {
+    Assert.assertNull(EventDiff.diff(new StringReader("a\nb\n"), new StringReader("a\nb\n")));
+    Assert.assertTrue(EventDiff.diff(new StringReader("a\nb\n"), new StringReader("a\nc\n")).contains("line 2"));
+    Assert.assertTrue(EventDiff.diff(new StringReader("a\nb\n"), new StringReader("a\n")).contains("<end>"));
+  }
+
+  private List<String> replay(String calls) {
+    List<String> events = new ArrayList<>();
+    SimulationClock clock = new SimulationClock();
+    new CallReplay(bank(clock), clock, events::add).replay(new StringReader(calls));
+    return events;
+  }
+
+  private ElevatorService bank(SimulationClock clock) {
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    for (int i = 0; i < 2; i++) {
+      service.createElevator(speed, floorHeight, doorTimeout, clock);
+    }
+    return service;
+  }
+}
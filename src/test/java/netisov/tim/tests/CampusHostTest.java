@@ -0,0 +1,148 @@
+package netisov.tim.tests;
+
+import netisov.tim.CampusHost;
+import netisov.tim.ElevatorEvent;
+import netisov.tim.LookScheduler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class CampusHostTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Test
+  public void buildingsAreSpreadOverShards() throws Exception {
+    try (CampusHost host = new CampusHost(3)) {
+      Set<Integer> shards = new HashSet<>();
+      for (int i = 0; i < 6; i++) {
+        shards.add(host.addBuilding("building-" + i, 2, speed, floorHeight, doorTimeout, null));
+      }
+
+      Assert.assertEquals(3, shards.size());
+      Assert.assertEquals(6, host.getBuildings().size());
+      Assert.assertEquals(host.getShard("building-0"), host.getShard("building-3"));
+    }
+  }
+
+  @Test
+  public void failedBuildingLeavesNothingBehind() throws Exception {
+    try (CampusHost host = new CampusHost(2)) {
+      try {
+        host.addBuilding("tower", 5, 0, floorHeight, doorTimeout, null);
+        Assert.fail();
+      } catch (CompletionException e) {
+        Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+      }
+
+      Assert.assertTrue(host.getBuildings().isEmpty());
+      Assert.assertEquals(0, host.addBuilding("tower", 1, speed, floorHeight, doorTimeout, null));
+      Assert.assertEquals(1, host.addBuilding("annex", 1, speed, floorHeight, doorTimeout, null));
+    }
+  }
+
+  @Test
+  public void everyBuildingServesItsCalls() throws Exception {
+    int buildings = 20;
+    CountDownLatch arrived = new CountDownLatch(buildings);
+    try (CampusHost host = new CampusHost(4)) {
+      for (int i = 0; i < buildings; i++) {
+        String name = "building-" + i;
+        host.addBuilding(name, 1, speed, floorHeight, doorTimeout, null);
+        host.call(name, service -> {
+          service.getEventBus().subscribe((event, endOfBatch) -> {
+            if (event.getType() == ElevatorEvent.Type.OPEN_DOOR && event.getFloor() == 4) {
+              arrived.countDown();
+            }
+          });
+          return null;
+        }).get();
+      }
+      for (String name : host.getBuildings()) {
+        Assert.assertEquals(0, (int) host.submitCall(name, 4, LookScheduler.DOWN).get());
+      }
+
+      Assert.assertTrue(arrived.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(4, (int) host.call("building-7",
+          service -> service.getElevators().get(0).getState().getCurrentFloor()).get());
+    }
+  }
+
+  @Test
+  public void failingListenerDoesntStopShard() throws Exception {
+    CountDownLatch arrived = new CountDownLatch(1);
+    CountDownLatch brokenArrived = new CountDownLatch(1);
+    try (CampusHost host = new CampusHost(1)) {
+      host.addBuilding("broken", 1, speed, floorHeight, doorTimeout, null);
+      host.addBuilding("fine", 1, speed, floorHeight, doorTimeout, null);
+      host.call("broken", service -> {
+        service.getElevators().get(0).addOpenDoorListener(floor -> {
+          throw new IllegalStateException("display is broken");
+        });
+        service.getEventBus().subscribe((event, endOfBatch) -> {
+          if (event.getType() == ElevatorEvent.Type.OPEN_DOOR && event.getFloor() == 6) {
+            brokenArrived.countDown();
+          }
+        });
+        return null;
+      }).get();
+      host.call("fine", service -> {
+        service.getElevators().get(0).addOpenDoorListener(floor -> arrived.countDown());
+        return null;
+      }).get();
+
+      host.submitCall("broken", 3, LookScheduler.DOWN).get();
+      Thread.sleep(500);
+      host.submitCall("fine", 4, LookScheduler.DOWN).get();
+
+      Assert.assertTrue(arrived.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(3, (int) host.call("broken",
+          service -> service.getElevators().get(0).getState().getCurrentFloor()).get(1, TimeUnit.SECONDS));
+
+      // broken building still serves calls
+      host.submitCall("broken", 6, LookScheduler.DOWN).get();
+      Assert.assertTrue(brokenArrived.await(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void failedShardFailsWhatIsSubmitted() throws Exception {
+    try (CampusHost host = new CampusHost(1)) {
+      host.addBuilding("tower", 1, speed, floorHeight, doorTimeout, null);
+      CompletableFuture<Object> failing = host.call("tower", service -> {
+        throw new OutOfMemoryError("pretend");
+      });
+      try {
+        failing.get(1, TimeUnit.SECONDS);
+        Assert.fail();
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof OutOfMemoryError);
+      }
+      try {
+        host.submitCall("tower", 4, LookScheduler.DOWN).get(1, TimeUnit.SECONDS);
+        Assert.fail();
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void buildingNamesAreUnique() throws Exception {
+    try (CampusHost host = new CampusHost(1)) {
+      host.addBuilding("tower", 1, speed, floorHeight, doorTimeout, null);
+      host.addBuilding("tower", 1, speed, floorHeight, doorTimeout, null);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package netisov.tim.tests;
+
+import netisov.tim.BuildingTopology;
+import netisov.tim.CarKinematics;
+import netisov.tim.Elevator;
+import netisov.tim.RealTimeClock;
+import netisov.tim.ServedFloors;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CarKinematicsTest {
+
+  @Test
+  public void shortTripsDontReachFullSpeed() {
+    CarKinematics kinematics = CarKinematics.of(2, 4, 2, 20);
+
+    Assert.assertEquals(0, kinematics.travelMillis(5, 5));
+    // 2.67 seconds speeding up and slowing down each, the rest at 2 m/s
+    Assert.assertEquals(22_667, kinematics.travelMillis(0, 10));
+    Assert.assertEquals(22_667, kinematics.travelMillis(10, 0));
+    // peak speed 1.69 m/s
+    Assert.assertEquals(4_722, kinematics.travelMillis(1));
+    Assert.assertTrue(kinematics.travelMillis(1) > kinematics.travelMillis(10) / 10);
+    Assert.assertEquals(4_000 + 4_722 - 2_000, kinematics.getStopMillis());
+  }
+
+  @Test
+  public void travelTimeGrowsWithDistance() {
+    CarKinematics kinematics = new CarKinematics(6, 1.2, 1.0, 3.5, 1000, 50);
+    for (int floors = 1; floors < 200; floors++) {
+      Assert.assertTrue(kinematics.travelMillis(floors) > kinematics.travelMillis(floors - 1));
+    }
+    // trips longer than the building are computed the same way
+    CarKinematics bigger = new CarKinematics(6, 1.2, 1.0, 3.5, 1000, 200);
+    Assert.assertEquals(bigger.travelMillis(150), kinematics.travelMillis(150));
+  }
+
+  @Test
+  public void elevatorKinematicsFollowBuilding() {
+    BuildingTopology topology = new BuildingTopology(-2, 30);
+    Elevator elevator = new Elevator(3, 3, 1, RealTimeClock.INSTANCE, ServedFloors.all(topology));
+
+    Assert.assertEquals(3, elevator.getKinematics().getMaxSpeed(), 0.0);
+    Assert.assertEquals(1000, elevator.getKinematics().getDoorMillis());
+    Assert.assertEquals(CarKinematics.of(3, 3, 1, 33).travelMillis(-2, 30),
+        elevator.getKinematics().travelMillis(-2, 30));
+  }
+}
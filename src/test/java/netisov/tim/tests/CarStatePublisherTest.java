@@ -0,0 +1,154 @@
+package netisov.tim.tests;
+
+import netisov.tim.CarState;
+import netisov.tim.CarStatePublisher;
+import netisov.tim.ElevatorEvent;
+import netisov.tim.ElevatorEventBus;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class CarStatePublisherTest {
+
+  @Test
+  public void slowSubscriberGetsLatestPositions() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus();
+    CarStatePublisher publisher = new CarStatePublisher(Runnable::run);
+    bus.subscribe(publisher);
+    bus.start();
+    Recorder recorder = new Recorder();
+    publisher.subscribe(recorder);
+
+    for (int floor = 0; floor < 1000; floor++) {
+      bus.publish(ElevatorEvent.Type.PASS_FLOOR, 1, floor, floor);
+      bus.publish(ElevatorEvent.Type.PASS_FLOOR, 2, -floor, floor);
+    }
+    bus.publish(ElevatorEvent.Type.OPEN_DOOR, 1, 1000, 1000);
+    bus.flush();
+    Assert.assertTrue(recorder.states.isEmpty());
+    Assert.assertEquals(1999, publisher.getConflated());
+
+    recorder.subscription.request(10);
+    Assert.assertEquals(2, recorder.states.size());
+    CarState first = recorder.states.get(0);
+    Assert.assertEquals(1, first.getElevator());
+    Assert.assertEquals(1000, first.getFloor());
+    Assert.assertTrue(first.isDoorOpened());
+    Assert.assertEquals(ElevatorEvent.Type.OPEN_DOOR, first.getEvent());
+    Assert.assertEquals(-999, recorder.states.get(1).getFloor());
+
+    // remaining demand is served as events come
+    bus.publish(ElevatorEvent.Type.CLOSE_DOOR, 1, 1000, 1001);
+    bus.flush();
+    Assert.assertEquals(3, recorder.states.size());
+    Assert.assertFalse(recorder.states.get(2).isDoorOpened());
+
+    bus.close();
+    publisher.close();
+    Assert.assertTrue(recorder.completed);
+  }
+
+  @Test
+  public void newSubscriberStartsFromCurrentState() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus();
+    CarStatePublisher publisher = new CarStatePublisher(Runnable::run);
+    bus.subscribe(publisher);
+    bus.start();
+    bus.publish(ElevatorEvent.Type.OPEN_DOOR, 1, 5, 10);
+    bus.publish(ElevatorEvent.Type.CALL_ACCEPTED, 1, 8, 11);
+    bus.flush();
+
+    Recorder recorder = new Recorder();
+    publisher.subscribe(recorder);
+    recorder.subscription.request(Long.MAX_VALUE);
+    Assert.assertEquals(1, recorder.states.size());
+    Assert.assertEquals(5, recorder.states.get(0).getFloor());
+    Assert.assertEquals(8, recorder.states.get(0).getEventFloor());
+    Assert.assertEquals(1, publisher.getSubscribers());
+
+    recorder.subscription.cancel();
+    bus.publish(ElevatorEvent.Type.CLOSE_DOOR, 1, 5, 12);
+    bus.close();
+    Assert.assertEquals(1, recorder.states.size());
+    Assert.assertEquals(0, publisher.getSubscribers());
+  }
+
+  @Test
+  public void subscriberJoiningDuringEventsEndsWithLatestState() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus();
+    CarStatePublisher publisher = new CarStatePublisher(Runnable::run);
+    bus.subscribe(publisher);
+    bus.start();
+    int floors = 50_000;
+    Thread elevator = new Thread(() -> {
+      for (int floor = 0; floor < floors; floor++) {
+        bus.publish(ElevatorEvent.Type.PASS_FLOOR, 1, floor, floor);
+      }
+    });
+    elevator.start();
+    List<AtomicReference<CarState>> lastStates = new ArrayList<>();
+    while (elevator.isAlive() && lastStates.size() < 200) {
+      AtomicReference<CarState> last = new AtomicReference<>();
+      publisher.subscribe(new Flow.Subscriber<CarState>() {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(CarState item) {
+          last.set(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+      });
+      lastStates.add(last);
+    }
+    elevator.join();
+    bus.flush();
+
+    for (AtomicReference<CarState> last : lastStates) {
+      Assert.assertEquals(floors - 1, last.get().getFloor());
+    }
+    bus.close();
+  }
+
+  private static final class Recorder implements Flow.Subscriber<CarState> {
+    private final List<CarState> states = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(CarState item) {
+      states.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      Assert.fail(throwable.toString());
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
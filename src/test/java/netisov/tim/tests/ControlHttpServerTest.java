@@ -0,0 +1,94 @@
+package netisov.tim.tests;
+
+import netisov.tim.ControlHttpServer;
+import netisov.tim.ElevatorService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RunWith(JUnit4.class)
+public class ControlHttpServerTest {
+  private final HttpClient client = HttpClient.newHttpClient();
+  private ElevatorService service;
+  private ControlHttpServer server;
+
+  @Before
+  public void start() throws IOException {
+    service = new ElevatorService();
+    service.setConsoleOutput(false);
+    service.createElevators(2, 20, 2, 1);
+    service.startControllers();
+    server = new ControlHttpServer(service, 0);
+  }
+
+  @After
+  public void stop() throws InterruptedException {
+    server.close();
+    service.shutdown();
+  }
+
+  @Test
+  public void callsAreSubmitted() throws IOException, InterruptedException {
+    HttpResponse<String> call = send("POST", "/call?floor=5&direction=down");
+    Assert.assertEquals(200, call.statusCode());
+    Assert.assertEquals("1", call.body());
+    Assert.assertEquals(202, send("POST", "/goto?elevator=2&floor=3").statusCode());
+
+    Assert.assertEquals(400, send("POST", "/call?floor=-3").statusCode());
+    Assert.assertEquals(400, send("POST", "/goto?elevator=3&floor=3").statusCode());
+    Assert.assertEquals(409, send("POST", "/call?floor=1&destination=4").statusCode());
+    Assert.assertEquals(405, send("GET", "/call?floor=1").statusCode());
+
+    HttpResponse<String> state = send("GET", "/state");
+    Assert.assertEquals(200, state.statusCode());
+    Assert.assertEquals(2, state.body().split("\n").length);
+    Assert.assertTrue(state.body().matches("(?s)1 -?\\d+ (opened|closed) \\d+\n2 .*"));
+  }
+
+  @Test
+  public void manyClientsFollowState() throws Exception {
+    int clients = 500;
+    List<CompletableFuture<HttpResponse<InputStream>>> streams = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      streams.add(client.sendAsync(request("GET", "/subscribe"), HttpResponse.BodyHandlers.ofInputStream()));
+    }
+    for (CompletableFuture<HttpResponse<InputStream>> stream : streams) {
+      HttpResponse<InputStream> response = stream.get();
+      Assert.assertEquals(200, response.statusCode());
+      BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+      // current state of every elevator comes first
+      Assert.assertTrue(reader.readLine().startsWith("data: "));
+      reader.readLine();
+      Assert.assertTrue(reader.readLine().startsWith("data: "));
+    }
+    Assert.assertEquals(clients, service.getStatePublisher().getSubscribers());
+    for (CompletableFuture<HttpResponse<InputStream>> stream : streams) {
+      stream.get().body().close();
+    }
+  }
+
+  private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+    return client.send(request(method, path), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpRequest request(String method, String path) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+        .method(method, HttpRequest.BodyPublishers.noBody()).build();
+  }
+}
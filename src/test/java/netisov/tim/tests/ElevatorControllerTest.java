@@ -0,0 +1,127 @@
+package netisov.tim.tests;
+
+import netisov.tim.DoorDwell;
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorController;
+import netisov.tim.LookScheduler;
+import netisov.tim.SimulationClock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class ElevatorControllerTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Test
+  public void callInTheMiddleOfTripIsTakenOnTheWay() {
+    SimulationClock clock = new SimulationClock();
+    Elevator elevator = new Elevator(speed, floorHeight, doorTimeout, clock);
+    ElevatorController controller = new ElevatorController(elevator);
+    controller.drive(clock);
+    List<Integer> openedOn = new ArrayList<>();
+    List<Long> openedAt = new ArrayList<>();
+    elevator.addOpenDoorListener(f -> {
+      openedOn.add(f);
+      openedAt.add(clock.millis());
+    });
+
+    controller.submitHallCall(5);
+    clock.schedule(150, () -> controller.submitHallCall(3));
+    clock.run();
+
+    Assert.assertEquals(Stream.of(3, 5).collect(Collectors.toList()), openedOn);
+    Assert.assertEquals(Stream.of(1200L, 3400L).collect(Collectors.toList()), openedAt);
+    Assert.assertEquals(5, elevator.getState().getCurrentFloor());
+    Assert.assertTrue(controller.isIdle());
+  }
+
+  @Test
+  public void callsAreServedOnTheWay() {
+    SimulationClock clock = new SimulationClock();
+    Elevator elevator = new Elevator(speed, floorHeight, doorTimeout, clock);
+    ElevatorController controller = new ElevatorController(elevator);
+    List<Integer> openedOn = new ArrayList<>();
+    elevator.addOpenDoorListener(openedOn::add);
+
+    controller.submitHallCall(2);
+    controller.submitCarCall(4);
+    controller.drive(clock);
+    clock.run();
+
+    Assert.assertEquals(Stream.of(2, 4).collect(Collectors.toList()), openedOn);
+  }
+
+  @Test
+  public void fullElevatorPassesCallsAndDoorWaitsForPeople() {
+    SimulationClock clock = new SimulationClock();
+    Elevator elevator = new Elevator(speed, floorHeight, doorTimeout, clock);
+    elevator.setCapacity(2);
+    elevator.setDoorDwell(new DoorDwell(200, 300, 1000));
+    ElevatorController controller = new ElevatorController(elevator);
+    List<Integer> openedOn = new ArrayList<>();
+    List<Long> openedAt = new ArrayList<>();
+    List<Long> closedAt = new ArrayList<>();
+    elevator.addOpenDoorListener(f -> {
+      openedOn.add(f);
+      openedAt.add(clock.millis());
+      if (f == 1) {
+        elevator.getLoad().board(2);
+        controller.submitCarCall(5);
+      } else if (f == 5) {
+        elevator.getLoad().alight(2);
+      }
+    });
+    elevator.addCloseDoorListener(f -> closedAt.add(clock.millis()));
+
+    controller.submitHallCall(1);
+    controller.submitHallCall(3, LookScheduler.UP);
+    controller.drive(clock);
+    clock.run();
+
+    // full elevator goes past the 3rd floor and comes back when people get out
+    Assert.assertEquals(Stream.of(1, 5, 3).collect(Collectors.toList()), openedOn);
+    Assert.assertEquals(Stream.of(1000L, 3200L, 5200L).collect(Collectors.toList()), openedAt);
+    Assert.assertEquals(Stream.of(1800L, 4000L, 5400L).collect(Collectors.toList()), closedAt);
+    Assert.assertEquals(0, elevator.getLoad().getCount());
+  }
+
+  @Test
+  public void callsFromManyThreads() throws InterruptedException {
+    Elevator elevator = new Elevator(speed, floorHeight, doorTimeout, new SimulationClock());
+    ElevatorController controller = new ElevatorController(elevator);
+    Set<Integer> openedOn = ConcurrentHashMap.newKeySet();
+    elevator.addOpenDoorListener(openedOn::add);
+    controller.start();
+
+    int producers = 4;
+    CountDownLatch done = new CountDownLatch(producers);
+    for (int p = 0; p < producers; p++) {
+      int offset = p;
+      new Thread(() -> {
+        IntStream.rangeClosed(1, 10).map(i -> i * producers + offset).forEach(controller::submitHallCall);
+        done.countDown();
+      }).start();
+    }
+    done.await();
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!controller.isIdle() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    controller.stop();
+
+    Assert.assertEquals(IntStream.rangeClosed(4, 43).boxed().collect(Collectors.toSet()), openedOn);
+  }
+}
@@ -0,0 +1,133 @@
+package netisov.tim.tests;
+
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorEvent;
+import netisov.tim.ElevatorEventBus;
+import netisov.tim.SimulationClock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class ElevatorEventBusTest {
+
+  @Test
+  public void eventsOfEveryElevatorAreDeliveredInOrder() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus(16, ElevatorEventBus.BackPressure.BLOCK);
+    int producers = 4;
+    int events = 10_000;
+    int[] lastFloor = new int[producers];
+    AtomicInteger received = new AtomicInteger();
+    AtomicInteger outOfOrder = new AtomicInteger();
+    bus.subscribe((event, endOfBatch) -> {
+      if (event.getFloor() != lastFloor[event.getElevator()] + 1) {
+        outOfOrder.incrementAndGet();
+      }
+      lastFloor[event.getElevator()] = event.getFloor();
+      received.incrementAndGet();
+    });
+    bus.start();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int elevator = p;
+      Thread thread = new Thread(() -> {
+        for (int floor = 1; floor <= events; floor++) {
+          bus.publish(ElevatorEvent.Type.PASS_FLOOR, elevator, floor, floor);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    bus.close();
+
+    Assert.assertEquals(producers * events, received.get());
+    Assert.assertEquals(0, outOfOrder.get());
+  }
+
+  @Test
+  public void slowListenerDoesNotHoldElevator() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus(4, ElevatorEventBus.BackPressure.DROP);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> openedOn = new ArrayList<>();
+    bus.subscribe((event, endOfBatch) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (event.getType() == ElevatorEvent.Type.OPEN_DOOR) {
+        openedOn.add(event.getFloor());
+      }
+    });
+    bus.start();
+    Elevator elevator = new Elevator(20, 2, 1, new SimulationClock());
+    elevator.publishTo(bus, 0);
+
+    // would never finish if elevator waited for the listener
+    elevator.callFrom(Stream.of(10).collect(Collectors.toList()));
+
+    Assert.assertTrue(bus.getDropped() > 0);
+    release.countDown();
+    bus.close();
+    Assert.assertEquals(10, elevator.getState().getCurrentFloor());
+  }
+
+  @Test
+  public void positionsAreCoalescedWhenBufferIsFull() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus(2, ElevatorEventBus.BackPressure.COALESCE);
+    List<Integer> passed = new ArrayList<>();
+    bus.subscribe((event, endOfBatch) -> passed.add(event.getFloor()));
+
+    for (int floor = 1; floor <= 10; floor++) {
+      bus.publish(ElevatorEvent.Type.PASS_FLOOR, 0, floor, floor);
+    }
+    bus.start();
+    bus.flush();
+    bus.close();
+
+    Assert.assertEquals(8, bus.getCoalesced());
+    Assert.assertEquals(Stream.of(1, 2, 10).collect(Collectors.toList()), passed);
+  }
+
+  @Test
+  public void mergedPositionIsDeliveredBeforeLaterEventsOfElevator() throws InterruptedException {
+    ElevatorEventBus bus = new ElevatorEventBus(2, ElevatorEventBus.BackPressure.COALESCE);
+    List<String> events = new ArrayList<>();
+    bus.subscribe((event, endOfBatch) -> {
+      if (event.getElevator() == 0) {
+        events.add(event.getType() + " " + event.getFloor());
+      }
+    });
+
+    for (int floor = 1; floor <= 4; floor++) {
+      bus.publish(ElevatorEvent.Type.PASS_FLOOR, 0, floor, floor);
+    }
+    bus.publish(ElevatorEvent.Type.PASS_FLOOR, 1, 7, 4);
+    // door events wait for space in the buffer
+    Thread elevator = new Thread(() -> {
+      bus.publish(ElevatorEvent.Type.OPEN_DOOR, 0, 5, 5);
+      bus.publish(ElevatorEvent.Type.CLOSE_DOOR, 0, 5, 6);
+    });
+    elevator.start();
+    bus.start();
+    elevator.join();
+    bus.flush();
+    bus.close();
+
+    Assert.assertEquals(3, bus.getCoalesced());
+    Assert.assertEquals(Stream.of("PASS_FLOOR 1", "PASS_FLOOR 2", "PASS_FLOOR 4", "OPEN_DOOR 5", "CLOSE_DOOR 5")
+        .collect(Collectors.toList()), events);
+  }
+}
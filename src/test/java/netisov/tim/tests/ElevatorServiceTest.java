@@ -0,0 +1,332 @@
+package netisov.tim.tests;
+
+import netisov.tim.BuildingTopology;
+import netisov.tim.CallRecorder;
+import netisov.tim.DemandModel;
+import netisov.tim.DestinationDispatch;
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorService;
+import netisov.tim.EtaDispatcher;
+import netisov.tim.IdleParking;
+import netisov.tim.LookScheduler;
+import netisov.tim.ServedFloors;
+import netisov.tim.SimulationClock;
+import netisov.tim.ZoningDispatcher;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class ElevatorServiceTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Test
+  public void createElevatorsDoesNotOverwrite() {
+    ElevatorService service = getService(3);
+    Assert.assertEquals(3, service.getElevators().size());
+  }
+
+  @Test
+  public void callsAreSpreadOverElevators() throws InterruptedException {
+    ElevatorService service = getService(2);
+
+    service.callElevator(Stream.of(2, 9).collect(Collectors.toList()));
+
+    Assert.assertEquals(2, service.getElevators().get(0).getState().getCurrentFloor());
+    Assert.assertEquals(9, service.getElevators().get(1).getState().getCurrentFloor());
+    Assert.assertEquals(2, service.getStatistics().getDispatchCount());
+    Assert.assertEquals(2, service.getStatistics().getServedCalls());
+    // 1 floor and 8 floors of travel, door opens in a second
+    Assert.assertEquals((1100 + 1800) / 2.0, service.getStatistics().getAverageWaitMillis(), 0.0);
+    Assert.assertEquals(1800, service.getStatistics().getMaxWaitMillis());
+  }
+
+  @Test
+  public void zoningSendsElevatorOfZone() throws InterruptedException {
+    ElevatorService service = getService(2);
+    service.setDispatcher(new ZoningDispatcher(10));
+
+    service.callElevator(Stream.of(7, 9).collect(Collectors.toList()));
+
+    Assert.assertEquals(1, service.getElevators().get(0).getState().getCurrentFloor());
+    Assert.assertEquals(9, service.getElevators().get(1).getState().getCurrentFloor());
+  }
+
+  @Test
+  public void etaPrefersIdleElevator() throws InterruptedException {
+    ElevatorService service = getService(2);
+    service.setDispatcher(new EtaDispatcher());
+
+    service.callElevator(Stream.of(3).collect(Collectors.toList()));
+    // the first elevator is at 3rd floor now, the second one is at the 1st
+    service.callElevator(Stream.of(4, 2, 3).collect(Collectors.toList()));
+
+    Elevator first = service.getElevators().get(0);
+    Elevator second = service.getElevators().get(1);
+    Assert.assertEquals(4, first.getState().getCurrentFloor());
+    Assert.assertEquals(2, second.getState().getCurrentFloor());
+    Assert.assertEquals(4, service.getStatistics().getServedCalls());
+  }
+
+  @Test
+  public void expressElevatorStopsOnlyAtItsFloors() throws InterruptedException {
+    BuildingTopology topology = new BuildingTopology(-2, 60);
+    ElevatorService service = new ElevatorService();
+    Elevator local = service.createElevator(speed, floorHeight, doorTimeout, new SimulationClock(),
+        ServedFloors.range(topology, -2, 20));
+    Elevator express = service.createElevator(speed, floorHeight, doorTimeout, new SimulationClock(),
+        ServedFloors.of(topology, 1).with(40, 60));
+    service.setDispatcher(new ZoningDispatcher(topology));
+
+    service.callElevator(Stream.of(45, -1).collect(Collectors.toList()));
+
+    Assert.assertEquals(-1, local.getState().getCurrentFloor());
+    Assert.assertEquals(45, express.getState().getCurrentFloor());
+    Assert.assertFalse(express.serves(20));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void callFromFloorNobodyStopsAt() throws InterruptedException {
+    BuildingTopology topology = new BuildingTopology(1, 60);
+    ElevatorService service = new ElevatorService();
+    service.createElevator(speed, floorHeight, doorTimeout, new SimulationClock(), ServedFloors.of(topology, 1).with(40, 60));
+
+    service.callElevator(Stream.of(20).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void rejectedCallIsNotRecorded() {
+    BuildingTopology topology = new BuildingTopology(1, 60);
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    service.createElevator(speed, floorHeight, doorTimeout, clock, ServedFloors.of(topology, 1).with(40, 60));
+    StringWriter record = new StringWriter();
+    CallRecorder recorder = new CallRecorder(record, clock);
+    service.setCallRecorder(recorder);
+    service.driveControllers(clock);
+
+    try {
+      service.submitCall(20, LookScheduler.DOWN);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      service.submitCarCall(0, 20);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    service.submitCall(45, LookScheduler.DOWN);
+    clock.run();
+    recorder.flush();
+
+    Assert.assertFalse(record.toString().contains(",20"));
+    Assert.assertTrue(record.toString().contains("0,HALL,45,-1"));
+    Assert.assertEquals(1, service.getStatistics().getServedCalls());
+  }
+
+  @Test
+  public void callWhileDoorIsOpenedOnFloorDoesntWait() {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    Elevator elevator = service.createElevator(speed, floorHeight, doorTimeout, clock);
+    List<Integer> stops = new ArrayList<>();
+    elevator.addOpenDoorListener(f -> {
+      stops.add(f);
+      if (stops.size() == 1) {
+        // somebody else comes up and presses the button as door opens
+        service.submitCall(f, LookScheduler.UP);
+      }
+    });
+    service.driveControllers(clock);
+
+    service.submitCall(5, LookScheduler.UP);
+    clock.run();
+    service.submitCall(5, LookScheduler.UP);
+    clock.run();
+
+    Assert.assertEquals(Arrays.asList(5, 5), stops);
+    Assert.assertEquals(3, service.getStatistics().getServedCalls());
+    // 4 floors of travel, nothing for the one who came while door was opened, door opens in a second
+    Assert.assertEquals(1400, service.getStatistics().getMaxWaitMillis());
+    Assert.assertEquals((1400 + 0 + 1000) / 3.0, service.getStatistics().getAverageWaitMillis(), 0.0);
+  }
+
+  @Test
+  public void destinationCallsAreGroupedByFloor() {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    service.createElevators(2, speed, floorHeight, doorTimeout, clock, null);
+    List<List<Integer>> stops = new ArrayList<>();
+    for (Elevator elevator : service.getElevators()) {
+      List<Integer> floors = new ArrayList<>();
+      elevator.addOpenDoorListener(floors::add);
+      stops.add(floors);
+    }
+    DestinationDispatch destinations = service.setDestinationDispatch(1000);
+    service.driveControllers(clock);
+
+    for (int destination : new int[]{8, 5, 8}) {
+      service.submitDestinationCall(1, destination);
+    }
+    clock.advanceTo(500);
+    service.submitDestinationCall(1, 5);
+    service.submitDestinationCall(1, 8);
+    clock.run();
+
+    Assert.assertEquals(1, destinations.getBatches());
+    Assert.assertEquals(3, destinations.getGrouped());
+    Assert.assertEquals(Arrays.asList(1, 5), stops.get(0));
+    Assert.assertEquals(Arrays.asList(1, 8), stops.get(1));
+  }
+
+  @Test
+  public void callDuringDwellIsServedByOpenedDoor() {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    Elevator elevator = service.createElevator(speed, floorHeight, doorTimeout, clock);
+    List<Long> openedAt = new ArrayList<>();
+    List<Long> closedAt = new ArrayList<>();
+    elevator.addOpenDoorListener(f -> openedAt.add(clock.millis()));
+    elevator.addCloseDoorListener(f -> closedAt.add(clock.millis()));
+    service.driveControllers(clock);
+
+    service.submitCall(3, LookScheduler.UP);
+    // door is opened on 3rd floor from 1200 till 2200
+    clock.schedule(1700, () -> service.submitCall(3, LookScheduler.UP));
+    clock.run();
+
+    Assert.assertEquals(Arrays.asList(1200L), openedAt);
+    Assert.assertEquals(Arrays.asList(2200L), closedAt);
+    Assert.assertEquals(2, service.getStatistics().getServedCalls());
+    Assert.assertEquals(1200 / 2.0, service.getStatistics().getAverageWaitMillis(), 0.0);
+  }
+
+  @Test
+  public void destinationCallAssignedToElevatorOpenedOnFloor() {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    Elevator elevator = service.createElevator(speed, floorHeight, doorTimeout, clock);
+    service.setDestinationDispatch(0);
+    List<Integer> stops = new ArrayList<>();
+    elevator.addOpenDoorListener(f -> {
+      stops.add(f);
+      if (stops.size() == 1) {
+        // batch is assigned to the elevator while its door is opened on the floor
+        service.submitDestinationCall(1, 4);
+      }
+    });
+    service.driveControllers(clock);
+
+    service.submitDestinationCall(1, 6);
+    clock.run();
+
+    Assert.assertEquals(Arrays.asList(1, 4, 6), stops);
+  }
+
+  @Test
+  public void peopleGoingTheOtherWayWait() {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    Elevator elevator = service.createElevator(speed, floorHeight, doorTimeout, clock);
+    List<Integer> stops = new ArrayList<>();
+    elevator.addOpenDoorListener(stops::add);
+    service.setDestinationDispatch(0);
+    service.driveControllers(clock);
+
+    service.submitDestinationCall(1, 6);
+    clock.advanceTo(100);
+    // elevator is on its way up when somebody at 3rd floor wants to go down
+    service.submitDestinationCall(3, 0);
+    service.submitDestinationCall(3, 5);
+    clock.run();
+
+    Assert.assertEquals(Arrays.asList(1, 3, 5, 6, 3, 0), stops);
+  }
+
+  @Test
+  public void idleElevatorParksWhereCallsAreExpected() {
+    SimulationClock clock = new SimulationClock(8 * 60 * 60 * 1000L);
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    service.createElevators(2, speed, floorHeight, doorTimeout, clock, null);
+    DemandModel model = new DemandModel(BuildingTopology.ofFloors(20));
+    // people came down from 12th floor at this time yesterday
+    for (int i = 0; i < 5; i++) {
+      model.record(12, clock.millis() - DemandModel.DAY_MILLIS + i * 60_000);
+    }
+    IdleParking parking = service.setParking(model);
+    Elevator first = service.getElevators().get(0);
+    List<Integer> stops = new ArrayList<>();
+    first.addOpenDoorListener(stops::add);
+    service.driveControllers(clock);
+
+    service.submitCall(3, LookScheduler.UP);
+    clock.run();
+
+    Assert.assertEquals(Arrays.asList(3), stops);
+    Assert.assertEquals(12, first.getState().getCurrentFloor());
+    Assert.assertFalse(first.getState().isDoorOpened());
+    Assert.assertEquals(12, parking.getParkingFloor(0));
+    Assert.assertEquals(1, service.getElevators().get(1).getState().getCurrentFloor());
+    Assert.assertTrue(model.demand(3, clock.millis()) > 0);
+  }
+
+  @Test
+  public void eventsAreDeliveredOnlyWhenSomebodyListens() throws InterruptedException {
+    long consumers = eventBusThreads();
+    ElevatorService idle = new ElevatorService();
+    idle.setConsoleOutput(false);
+    idle.createElevators(2, speed, floorHeight, doorTimeout, new SimulationClock(), null);
+    Assert.assertEquals(consumers, eventBusThreads());
+
+    idle.getStatePublisher();
+    Assert.assertEquals(consumers + 1, eventBusThreads());
+    idle.shutdown();
+
+    // simulation delivers events on the thread driving it
+    SimulationClock clock = new SimulationClock();
+    ElevatorService simulation = new ElevatorService();
+    simulation.setConsoleOutput(false);
+    simulation.createElevator(speed, floorHeight, doorTimeout, clock);
+    simulation.driveControllers(clock);
+    List<Thread> deliveredOn = new ArrayList<>();
+    simulation.getEventBus().subscribe((event, endOfBatch) -> deliveredOn.add(Thread.currentThread()));
+    simulation.submitCall(5, LookScheduler.UP);
+    clock.run();
+    simulation.flushEvents();
+
+    Assert.assertFalse(deliveredOn.isEmpty());
+    Assert.assertTrue(deliveredOn.stream().allMatch(t -> t == Thread.currentThread()));
+    Assert.assertEquals(consumers, eventBusThreads());
+  }
+
+  private static long eventBusThreads() {
+    return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals("elevator-event-bus")).count();
+  }
+
+  private ElevatorService getService(int numElevators) {
+    ElevatorService service = new ElevatorService();
+    for (int i = 0; i < numElevators; i++) {
+      service.createElevator(speed, floorHeight, doorTimeout, new SimulationClock());
+    }
+    return service;
+  }
+}
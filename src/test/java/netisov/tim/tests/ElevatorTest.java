@@ -2,13 +2,12 @@ package netisov.tim.tests;
 
 import netisov.tim.Elevator;
 import netisov.tim.ElevatorState;
+import netisov.tim.SimulationClock;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -25,6 +24,8 @@ public class ElevatorTest {
   private final int speed = 20;
   private final int floorHeight = 2;
   private final int doorTimeout = 1;
+  private final long millisecondsPerFloor = 100;
+  private final SimulationClock clock = new SimulationClock();
 
 
   @Test
@@ -36,14 +37,13 @@ public class ElevatorTest {
   @Test
   public void callElevatorFromOneFloor() throws InterruptedException {
     Elevator elevator = getElevator();
-    Integer floorToGo = 3;
-    Instant from = Instant.now();
+    int floorToGo = 3;
+    long from = clock.millis();
     elevator.callFrom(Stream.of(floorToGo).collect(Collectors.toList()));
-    Duration duration = Duration.between(from, Instant.now());
-    float expectedTime = (((float) floorHeight * (floorToGo - DEFAULT_FLOOR) / (float) speed)) + 2 * doorTimeout;
-    Assert.assertEquals(expectedTime * 1000, (float) duration.toMillis(), 100.0);
+    long duration = clock.millis() - from;
+    long expectedTime = millisecondsPerFloor * (floorToGo - DEFAULT_FLOOR) + 2 * doorTimeout * 1000;
+    Assert.assertEquals(expectedTime, duration);
 
-    // give 100 milliseconds for runtime expenses because of search nearest floors
     Assert.assertEquals(floorToGo, elevator.getState().getCurrentFloor());
   }
 
@@ -51,7 +51,6 @@ public class ElevatorTest {
   public void callElevatorFromEmptyFloorList() throws InterruptedException {
     Elevator elevator = getElevator();
     elevator.callFrom(new ArrayList<>());
-    // give 100 milliseconds for runtime expenses because of search nearest floors
     Assert.assertEquals(ElevatorState.DEFAULT_FLOOR, elevator.getState().getCurrentFloor());
   }
 
@@ -72,7 +71,7 @@ public class ElevatorTest {
     elevator.addPassFloorListener(actualPath::add);
 
     elevator.setEnterOnFloorObserver(() -> {
-      if (elevator.getState().getCurrentFloor().equals(2)) {
+      if (elevator.getState().getCurrentFloor() == 2) {
         elevator.pressedFloorButtons(Stream.of(1).collect(Collectors.toList()));
         return true;
       } else {
@@ -83,15 +82,45 @@ public class ElevatorTest {
     elevator.callFrom(Stream.of(2, 4).collect(Collectors.toList()));
 
 
-    Assert.assertEquals(new Integer(4), elevator.getState().getCurrentFloor());
+    Assert.assertEquals(4, elevator.getState().getCurrentFloor());
     Assert.assertArrayEquals(expectedPath.toArray(), actualPath.toArray());
   }
 
+  @Test
+  public void callsOnTheWayDontGrowStack() throws InterruptedException {
+    Elevator elevator = getElevator();
+    int calls = 20000;
+    AtomicInteger arrivals = new AtomicInteger();
+    AtomicInteger depth = new AtomicInteger();
+    elevator.setEnterOnFloorObserver(() -> {
+      depth.accumulateAndGet(Thread.currentThread().getStackTrace().length, Math::max);
+      int floor = elevator.getState().getCurrentFloor();
+      if (arrivals.incrementAndGet() < calls) {
+        // somebody gets in and goes one floor up, somebody else calls from the floor below
+        elevator.pressedFloorButtons(Stream.of(floor + 1).collect(Collectors.toList()));
+        try {
+          elevator.callFrom(Stream.of(floor).collect(Collectors.toList()));
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return true;
+      }
+      return false;
+    });
+
+    int start = Thread.currentThread().getStackTrace().length;
+    elevator.callFrom(Stream.of(2).collect(Collectors.toList()));
+
+    Assert.assertEquals(calls, arrivals.get());
+    Assert.assertTrue("stack grew to " + depth.get(), depth.get() - start < 50);
+    Assert.assertFalse(elevator.getState().isDoorOpened());
+  }
+
   @Test
   public void callElevatorFromSeveralFloors() throws InterruptedException {
     Elevator elevator = getElevator();
-    Integer first = 3;
-    Integer second = 5;
+    int first = 3;
+    int second = 5;
     int initialFloorToCheckDuration = elevator.getState().getCurrentFloor();
     AtomicInteger initialFloor = new AtomicInteger(elevator.getState().getCurrentFloor());
     elevator.addPassFloorListener(f -> Assert.assertEquals((long) initialFloor.getAndIncrement(), (long) f));
@@ -118,25 +147,25 @@ public class ElevatorTest {
     });
 
 
-    Instant beforeInstant = Instant.now();
+    long before = clock.millis();
 
     elevator.callFrom(Stream.of(first, second).collect(Collectors.toList()));
 
-    Duration duration = Duration.between(beforeInstant, Instant.now());
+    long duration = clock.millis() - before;
 
-    float elevatorShouldArrive = ((float) ((second - initialFloorToCheckDuration) * floorHeight) / (float) speed +
-        doorTimeout * countOpenDoor.get() + doorTimeout * countCloseDoor.get());
+    long elevatorShouldArrive = millisecondsPerFloor * (second - initialFloorToCheckDuration) +
+        (doorTimeout * countOpenDoor.get() + doorTimeout * countCloseDoor.get()) * 1000;
 
-    Assert.assertEquals(duration.toMillis(), elevatorShouldArrive * 1000, 100.0);
+    Assert.assertEquals(elevatorShouldArrive, duration);
     Assert.assertEquals(second, elevator.getState().getCurrentFloor());
   }
 
   @Test
   public void callElevatorFromFloorsAndExpectingToComeToNearest() throws InterruptedException {
     Elevator elevator = getElevator();
-    Integer first = 3;
-    Integer nearest = 4;
-    Integer farthest = 1;
+    int first = 3;
+    int nearest = 4;
+    int farthest = 1;
 
 
     elevator.callFrom(Stream.of(first).collect(Collectors.toList()));
@@ -167,7 +196,7 @@ public class ElevatorTest {
   @Test
   public void testGoToFloor() {
     Elevator elevator = getElevator();
-    Integer floor = 3;
+    int floor = 3;
     elevator.pressedFloorButtons(Stream.of(floor).collect(Collectors.toList()));
     Assert.assertEquals(floor, elevator.getState().getCurrentFloor());
   }
@@ -274,15 +303,14 @@ public class ElevatorTest {
     List<Integer> passed = new ArrayList<>();
     elevator.addPassFloorListener(passed::add);
 
-    Instant from = Instant.now();
+    long from = clock.millis();
 
     elevator.pressedFloorButtons(next);
 
 
-    Duration duration = Duration.between(from, Instant.now());
-    float expectedTime = (((float) floorHeight / (float) speed) * 3) + 4 * doorTimeout;
-    Assert.assertEquals(expectedTime * 1000, (float) duration.toMillis(), 20.0);
-    // give 20 milliseconds for runtime expenses
+    long duration = clock.millis() - from;
+    long expectedTime = millisecondsPerFloor * 3 + 4 * doorTimeout * 1000;
+    Assert.assertEquals(expectedTime, duration);
 
 
     Assert.assertEquals(expected, passed);
@@ -291,6 +319,66 @@ public class ElevatorTest {
   }
 
   private Elevator getElevator() {
-    return new Elevator(speed, floorHeight, doorTimeout);
+    return new Elevator(speed, floorHeight, doorTimeout, clock);
+  }
+
+  @Test
+  public void testSimulationClockRunsEventsInOrder() {
+    SimulationClock simulationClock = new SimulationClock();
+    List<Long> fired = new ArrayList<>();
+    simulationClock.schedule(300, () -> fired.add(simulationClock.millis()));
+    simulationClock.schedule(100, () -> fired.add(simulationClock.millis()));
+    simulationClock.schedule(100, () -> simulationClock.schedule(50, () -> fired.add(simulationClock.millis())));
+
+    simulationClock.sleep(200);
+    Assert.assertEquals(Stream.of(100L, 150L).collect(Collectors.toList()), fired);
+    Assert.assertEquals(200L, simulationClock.millis());
+
+    simulationClock.run();
+    Assert.assertEquals(Stream.of(100L, 150L, 300L).collect(Collectors.toList()), fired);
+    Assert.assertEquals(0, simulationClock.pendingEvents());
+  }
+
+  @Test
+  public void stateIsReadWhole() throws InterruptedException {
+    ElevatorState state = new ElevatorState();
+    int updates = 200_000;
+    AtomicInteger torn = new AtomicInteger();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < updates; i++) {
+        state.set(i, i % 2 == 0 ? 1 : -1, i % 3 == 0, i % 1000);
+      }
+    });
+    List<Thread> readers = new ArrayList<>();
+    for (int r = 0; r < 2; r++) {
+      readers.add(new Thread(() -> {
+        while (writer.isAlive()) {
+          long snapshot = state.snapshot();
+          int floor = ElevatorState.floor(snapshot);
+          if (ElevatorState.direction(snapshot) != (floor % 2 == 0 ? 1 : -1)
+              || ElevatorState.doorOpened(snapshot) != (floor % 3 == 0)
+              || ElevatorState.load(snapshot) != floor % 1000) {
+            torn.incrementAndGet();
+          }
+        }
+      }));
+    }
+    writer.start();
+    readers.forEach(Thread::start);
+    writer.join();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    Assert.assertEquals(0, torn.get());
+    long last = state.snapshot();
+    Assert.assertEquals(updates - 1, ElevatorState.floor(last));
+    Assert.assertEquals(updates % 8192, ElevatorState.version(last));
+    state.move(-1);
+    Assert.assertFalse(state.isCurrent(last));
+    Assert.assertEquals(updates - 2, state.getCurrentFloor());
+    Assert.assertEquals(-1, state.getDirection());
+    Assert.assertEquals(ElevatorState.load(last), state.getLoad());
+    Assert.assertEquals(ElevatorState.doorOpened(last), state.isDoorOpened());
   }
 }
@@ -0,0 +1,112 @@
+package netisov.tim.tests;
+
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorEvent;
+import netisov.tim.EventJournal;
+import netisov.tim.JournalReader;
+import netisov.tim.LookScheduler;
+import netisov.tim.SimulationClock;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class EventJournalTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void elevatorEvents() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    SimulationClock clock = new SimulationClock();
+    Elevator elevator = new Elevator(20, 2, 1, clock);
+    try (EventJournal journal = new EventJournal(directory)) {
+      elevator.journalTo(journal, 7);
+      elevator.callFrom(Arrays.asList(3));
+    }
+
+    List<String> records = new ArrayList<>();
+    try (JournalReader reader = new JournalReader(directory)) {
+      while (reader.next()) {
+        Assert.assertEquals(7, reader.getElevator());
+        Assert.assertEquals(records.size(), reader.getSequence());
+        records.add(reader.getType() + " " + reader.getFloor() + " " + reader.getTime());
+      }
+    }
+    Assert.assertEquals(Arrays.asList("CALL_ACCEPTED 3 0", "PASS_FLOOR 1 100", "PASS_FLOOR 2 200",
+        "CALL_SERVED 3 200", "OPEN_DOOR 3 1200", "CLOSE_DOOR 3 2200"), records);
+  }
+
+  @Test
+  public void concurrentWritersAcrossSegments() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    int threads = 4;
+    int perThread = 10_000;
+    try (EventJournal journal = new EventJournal(directory, 1000)) {
+      List<Thread> writers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int elevator = t;
+        Thread writer = new Thread(() -> {
+          for (int i = 0; i < perThread; i++) {
+            journal.append(ElevatorEvent.Type.PASS_FLOOR, elevator, i, LookScheduler.UP, i);
+          }
+        });
+        writers.add(writer);
+        writer.start();
+      }
+      for (Thread writer : writers) {
+        writer.join();
+      }
+    }
+
+    BitSet sequences = new BitSet();
+    int[] lastFloor = new int[threads];
+    Arrays.fill(lastFloor, -1);
+    try (JournalReader reader = new JournalReader(directory)) {
+      while (reader.next()) {
+        sequences.set((int) reader.getSequence());
+        Assert.assertEquals(ElevatorEvent.Type.PASS_FLOOR, reader.getType());
+        Assert.assertEquals(reader.getFloor(), reader.getTime());
+        Assert.assertEquals(LookScheduler.UP, reader.getDirection());
+        // records of one writer are in order
+        Assert.assertTrue(reader.getFloor() > lastFloor[reader.getElevator()]);
+        lastFloor[reader.getElevator()] = reader.getFloor();
+      }
+    }
+    Assert.assertEquals(threads * perThread, sequences.cardinality());
+    Assert.assertEquals(threads * perThread, sequences.nextClearBit(0));
+  }
+
+  @Test
+  public void reopenedJournalContinues() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    try (EventJournal journal = new EventJournal(directory, 4)) {
+      for (int i = 0; i < 5; i++) {
+        journal.append(ElevatorEvent.Type.OPEN_DOOR, 1, i, LookScheduler.IDLE, i);
+      }
+    }
+    try (EventJournal journal = new EventJournal(directory, 4)) {
+      Assert.assertEquals(5, journal.getNextSequence());
+      journal.append(ElevatorEvent.Type.CLOSE_DOOR, 1, 5, LookScheduler.IDLE, 5);
+    }
+
+    try (JournalReader reader = new JournalReader(directory, 3)) {
+      for (int i = 3; i <= 5; i++) {
+        Assert.assertTrue(reader.next());
+        Assert.assertEquals(i, reader.getSequence());
+        Assert.assertEquals(i, reader.getFloor());
+      }
+      Assert.assertEquals(ElevatorEvent.Type.CLOSE_DOOR, reader.getType());
+      Assert.assertFalse(reader.next());
+    }
+  }
+}
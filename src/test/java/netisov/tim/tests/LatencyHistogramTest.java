@@ -0,0 +1,68 @@
+package netisov.tim.tests;
+
+import netisov.tim.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTest {
+
+  @Test
+  public void smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 200; i++) {
+      histogram.record(i);
+    }
+
+    Assert.assertEquals(200, histogram.getCount());
+    Assert.assertEquals(100, histogram.getValueAtPercentile(50));
+    Assert.assertEquals(198, histogram.getValueAtPercentile(99));
+    Assert.assertEquals(200, histogram.getValueAtPercentile(100));
+    Assert.assertEquals(1, histogram.getMin());
+    Assert.assertEquals(100.5, histogram.getMean(), 0.0);
+  }
+
+  @Test
+  public void bigValuesWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100_000; i++) {
+      histogram.record(i * 10);
+    }
+
+    assertWithinPercent(500_000, histogram.getValueAtPercentile(50));
+    assertWithinPercent(990_000, histogram.getValueAtPercentile(99));
+    assertWithinPercent(999_000, histogram.getValueAtPercentile(99.9));
+    Assert.assertEquals(1_000_000, histogram.getMax());
+  }
+
+  @Test
+  public void valuesOutOfRangeAreClamped() {
+    LatencyHistogram histogram = new LatencyHistogram(1000);
+    histogram.record(-5);
+    histogram.record(5000);
+
+    Assert.assertEquals(0, histogram.getMin());
+    Assert.assertEquals(1000, histogram.getMax());
+  }
+
+  @Test
+  public void add() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    first.record(10);
+    second.record(20);
+    second.record(30);
+    first.add(second);
+
+    Assert.assertEquals(3, first.getCount());
+    Assert.assertEquals(20, first.getValueAtPercentile(50));
+    Assert.assertEquals(30, first.getMax());
+    Assert.assertEquals(10, first.getMin());
+  }
+
+  private void assertWithinPercent(long expected, long actual) {
+    Assert.assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected / 100);
+  }
+}
@@ -0,0 +1,126 @@
+package netisov.tim.tests;
+
+import netisov.tim.FloorRequestSet;
+import netisov.tim.LookScheduler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class LookSchedulerTest {
+
+  @Test
+  public void idleGoesToNearestFirst() {
+    LookScheduler scheduler = new LookScheduler();
+    scheduler.add(1);
+    scheduler.add(6);
+    Assert.assertEquals(6, scheduler.next(5));
+    Assert.assertEquals(LookScheduler.UP, scheduler.getDirection());
+  }
+
+  @Test
+  public void keepsDirectionUntilNoRequestsAhead() {
+    LookScheduler scheduler = new LookScheduler();
+    scheduler.add(7);
+    Assert.assertEquals(7, scheduler.next(1));
+    // elevator is at 4th floor on its way up, greedy would go down to 3 now
+    scheduler.add(3);
+    scheduler.add(5);
+    Assert.assertEquals(5, scheduler.next(4));
+    scheduler.remove(5);
+    Assert.assertEquals(7, scheduler.next(5));
+    scheduler.remove(7);
+    Assert.assertEquals(3, scheduler.next(7));
+    Assert.assertEquals(LookScheduler.DOWN, scheduler.getDirection());
+    scheduler.remove(3);
+    Assert.assertEquals(LookScheduler.NONE, scheduler.next(3));
+    Assert.assertEquals(LookScheduler.IDLE, scheduler.getDirection());
+  }
+
+  @Test
+  public void farFloorIsNotStarved() {
+    LookScheduler scheduler = new LookScheduler();
+    scheduler.add(1);
+    scheduler.add(6);
+    int current = 5;
+    int servedBeforeFirst = 0;
+    // someone keeps calling elevator near its position
+    for (int i = 0; i < 10; i++) {
+      int next = scheduler.next(current);
+      scheduler.remove(next);
+      if (next == 1) {
+        break;
+      }
+      servedBeforeFirst++;
+      current = next;
+      scheduler.add(current == 6 ? 5 : 6);
+    }
+    Assert.assertTrue(servedBeforeFirst <= 2);
+  }
+
+  @Test
+  public void hallCallsStopOnlyInTheirDirection() {
+    LookScheduler scheduler = new LookScheduler();
+    scheduler.addHallCall(3, LookScheduler.DOWN);
+    scheduler.addHallCall(5, LookScheduler.UP);
+    scheduler.addHallCall(8, LookScheduler.DOWN);
+    scheduler.setDirection(LookScheduler.UP);
+
+    // going up passes by call to go down on 3rd floor
+    Assert.assertEquals(5, scheduler.next(1));
+    scheduler.remove(5);
+    // and turns back at the highest call to go down
+    Assert.assertEquals(8, scheduler.next(5));
+    scheduler.remove(8);
+    Assert.assertEquals(3, scheduler.next(8));
+    Assert.assertEquals(LookScheduler.DOWN, scheduler.getDirection());
+    scheduler.remove(3);
+    Assert.assertTrue(scheduler.isEmpty());
+  }
+
+  @Test
+  public void floorRequestSetSearchesAcrossWords() {
+    FloorRequestSet set = new FloorRequestSet();
+    set.add(3);
+    set.add(200);
+    set.add(64);
+    Assert.assertEquals(3, set.size());
+    Assert.assertEquals(64, set.nextFloor(4));
+    Assert.assertEquals(200, set.nextFloor(65));
+    Assert.assertEquals(FloorRequestSet.NONE, set.nextFloor(201));
+    Assert.assertEquals(64, set.previousFloor(199));
+    Assert.assertEquals(3, set.previousFloor(63));
+    Assert.assertEquals(200, set.previousFloor(Integer.MAX_VALUE));
+    Assert.assertFalse(set.add(64));
+    Assert.assertTrue(set.remove(64));
+    Assert.assertEquals(3, set.previousFloor(199));
+    Assert.assertEquals(2, set.size());
+  }
+
+  @Test
+  public void basementsAndTallBuildings() {
+    LookScheduler scheduler = new LookScheduler(-5);
+    scheduler.add(-3);
+    scheduler.add(2500);
+    Assert.assertEquals(-3, scheduler.next(1));
+    scheduler.remove(-3);
+    Assert.assertEquals(2500, scheduler.next(-3));
+    Assert.assertEquals(Stream.of(2500).collect(Collectors.toList()), scheduler.toList());
+  }
+
+  @Test
+  public void floorRequestSetSearchesAcrossSummaryWords() {
+    FloorRequestSet set = new FloorRequestSet();
+    set.add(10);
+    set.add(100_000);
+    Assert.assertEquals(100_000, set.nextFloor(11));
+    Assert.assertEquals(10, set.previousFloor(99_999));
+    set.remove(100_000);
+    Assert.assertEquals(FloorRequestSet.NONE, set.nextFloor(11));
+    Assert.assertEquals(10, set.previousFloor(Integer.MAX_VALUE));
+  }
+}
@@ -0,0 +1,129 @@
+package netisov.tim.tests;
+
+import netisov.tim.AtomicHistogram;
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorMetrics;
+import netisov.tim.ElevatorService;
+import netisov.tim.LatencyHistogram;
+import netisov.tim.MetricsHttpServer;
+import netisov.tim.SimulationClock;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class MetricsTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Test
+  public void elevatorCounters() throws InterruptedException {
+    SimulationClock clock = new SimulationClock();
+    Elevator elevator = new Elevator(speed, floorHeight, doorTimeout, clock);
+    elevator.callFrom(Arrays.asList(3, 5));
+    clock.sleep(1000);
+
+    ElevatorMetrics metrics = elevator.getMetrics();
+    Assert.assertEquals(4, metrics.getFloorsTravelled());
+    Assert.assertEquals(2, metrics.getDoorCycles());
+    Assert.assertEquals(2, metrics.getCallsAccepted());
+    Assert.assertEquals(2, metrics.getCallsServed());
+    Assert.assertEquals(400, metrics.getMovingMillis());
+    Assert.assertEquals(4000, metrics.getDoorMillis());
+    Assert.assertEquals(1000, metrics.getIdleMillis());
+  }
+
+  @Test
+  public void histogramFromManyThreads() throws InterruptedException {
+    AtomicHistogram histogram = new AtomicHistogram();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        for (int i = 1; i <= 10_000; i++) {
+          histogram.record(i % 100 + 1);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    LatencyHistogram snapshot = histogram.snapshot();
+    Assert.assertEquals(40_000, snapshot.getCount());
+    Assert.assertEquals(50, snapshot.getValueAtPercentile(50));
+    Assert.assertEquals(100, snapshot.getMax());
+    Assert.assertEquals(1, snapshot.getMin());
+  }
+
+  @Test
+  public void recordingDoesNotAllocate() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    AtomicHistogram histogram = new AtomicHistogram();
+    for (int i = 0; i < 100_000; i++) {
+      histogram.record(i);
+    }
+    long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    for (int i = 0; i < 100_000; i++) {
+      histogram.record(i);
+    }
+    long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+
+    Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+  }
+
+  @Test
+  public void httpAndJmx() throws Exception {
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    SimulationClock clock = new SimulationClock();
+    service.createElevator(speed, floorHeight, doorTimeout, clock);
+    service.driveControllers(clock);
+    service.submitCall(4);
+    clock.run();
+
+    try (MetricsHttpServer server = new MetricsHttpServer(service.getMetrics(), 0)) {
+      HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + server.getPort() + "/metrics")
+          .toURL().openConnection();
+      Assert.assertEquals(200, connection.getResponseCode());
+      String text = read(connection.getInputStream());
+      Assert.assertTrue(text, text.contains("elevator.1.floors_travelled 3\n"));
+      Assert.assertTrue(text, text.contains("dispatch.latency_nanos.count 1\n"));
+    }
+
+    service.getMetrics().registerMBean("netisov.tim.tests:type=MetricsTest");
+    Object doorCycles = ManagementFactory.getPlatformMBeanServer()
+        .getAttribute(new ObjectName("netisov.tim.tests:type=MetricsTest"), "elevator.1.door_cycles");
+    Assert.assertEquals(1L, doorCycles);
+    service.shutdown();
+  }
+
+  private String read(InputStream in) throws Exception {
+    try (InputStream input = in) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = input.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
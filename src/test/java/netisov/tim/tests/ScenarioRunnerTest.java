@@ -0,0 +1,78 @@
+package netisov.tim.tests;
+
+import netisov.tim.EtaDispatcher;
+import netisov.tim.Passenger;
+import netisov.tim.ReplayReport;
+import netisov.tim.Scenario;
+import netisov.tim.ScenarioRunner;
+import netisov.tim.ScenarioSummary;
+import netisov.tim.TrafficSource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+@RunWith(JUnit4.class)
+public class ScenarioRunnerTest {
+  private final TrafficSource traffic = (seed, topology) -> {
+    Random random = new Random(seed);
+    int floors = topology.getHighestFloor() - topology.getLowestFloor() + 1;
+    List<Passenger> passengers = new ArrayList<>();
+    long time = 0;
+    for (int i = 0; i < 200; i++) {
+      time += random.nextInt(5000);
+      int origin = topology.getLowestFloor() + random.nextInt(floors);
+      int destination = topology.getLowestFloor() + (origin - topology.getLowestFloor() + 1 + random.nextInt(floors - 1)) % floors;
+      passengers.add(new Passenger(time, origin, destination));
+    }
+    return passengers.iterator();
+  };
+
+  @Test
+  public void reportsInOrderOfScenarios() {
+    List<Scenario> scenarios = scenarios();
+    List<ReplayReport> reports = new ScenarioRunner().run(scenarios);
+
+    Assert.assertEquals(scenarios.size(), reports.size());
+    for (int i = 0; i < scenarios.size(); i++) {
+      ReplayReport alone = ScenarioRunner.run(scenarios.get(i));
+      Assert.assertEquals(alone.getDelivered(), reports.get(i).getDelivered());
+      Assert.assertEquals(alone.getSimulatedMillis(), reports.get(i).getSimulatedMillis());
+      Assert.assertEquals(alone.getAverageTripMillis(), reports.get(i).getAverageTripMillis(), 0.0);
+    }
+  }
+
+  @Test
+  public void summariesDontDependOnThreads() {
+    Map<String, ScenarioSummary> parallel = new ScenarioRunner(new ForkJoinPool(4)).runAndSummarize(scenarios());
+    Map<String, ScenarioSummary> sequential = new ScenarioRunner(new ForkJoinPool(1)).runAndSummarize(scenarios());
+
+    Assert.assertEquals(2, parallel.size());
+    Assert.assertEquals(sequential.keySet(), parallel.keySet());
+    for (String name : parallel.keySet()) {
+      ScenarioSummary a = parallel.get(name);
+      ScenarioSummary b = sequential.get(name);
+      Assert.assertEquals(8, a.getRuns());
+      Assert.assertEquals(8 * 200, a.getDelivered());
+      Assert.assertEquals(b.toString(), a.toString());
+      Assert.assertEquals(b.getAverageTripMillis(), a.getAverageTripMillis(), 0.0);
+    }
+  }
+
+  private List<Scenario> scenarios() {
+    List<Scenario> scenarios = new ArrayList<>();
+    for (long seed = 1; seed <= 8; seed++) {
+      scenarios.add(Scenario.builder().name("nearest").seed(seed).numElevators(3).capacity(8)
+          .traffic(traffic).build());
+      scenarios.add(Scenario.builder().name("eta").seed(seed).numElevators(3).capacity(8)
+          .dispatcher(t -> new EtaDispatcher()).traffic(traffic).build());
+    }
+    return scenarios;
+  }
+}
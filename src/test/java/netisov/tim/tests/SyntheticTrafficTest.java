@@ -0,0 +1,96 @@
+package netisov.tim.tests;
+
+import netisov.tim.BuildingTopology;
+import netisov.tim.Passenger;
+import netisov.tim.ReplayReport;
+import netisov.tim.Scenario;
+import netisov.tim.ScenarioRunner;
+import netisov.tim.SyntheticTraffic;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Iterator;
+
+@RunWith(JUnit4.class)
+public class SyntheticTrafficTest {
+  private final BuildingTopology topology = new BuildingTopology(-2, 20);
+
+  @Test
+  public void sameSeedGivesSamePassengers() {
+    SyntheticTraffic traffic = SyntheticTraffic.builder().pattern(SyntheticTraffic.Pattern.LUNCH).build();
+    Iterator<Passenger> first = traffic.passengers(7, topology);
+    Iterator<Passenger> second = traffic.passengers(7, topology);
+    Iterator<Passenger> other = traffic.passengers(8, topology);
+    int same = 0;
+    int count = 0;
+    while (first.hasNext()) {
+      Passenger a = first.next();
+      Passenger b = second.next();
+      Passenger c = other.next();
+      Assert.assertEquals(a.getArrivalTime(), b.getArrivalTime());
+      Assert.assertEquals(a.getOrigin(), b.getOrigin());
+      Assert.assertEquals(a.getDestination(), b.getDestination());
+      same += a.getOrigin() == c.getOrigin() && a.getDestination() == c.getDestination() ? 1 : 0;
+      count++;
+    }
+    Assert.assertFalse(second.hasNext());
+    Assert.assertEquals(1000, count);
+    Assert.assertTrue(same < count / 2);
+  }
+
+  @Test
+  public void upPeakComesFromLobbyAtGivenRate() {
+    long passengers = 1_000_000;
+    // nobody lives on the 20th floor, the 10th is ten times as crowded as others
+    int[] populations = new int[topology.getNumFloors()];
+    for (int floor = topology.getLowestFloor(); floor <= topology.getHighestFloor(); floor++) {
+      populations[topology.toIndex(floor)] = floor == 20 ? 0 : floor == 10 ? 10 : 1;
+    }
+    SyntheticTraffic traffic = SyntheticTraffic.builder().pattern(SyntheticTraffic.Pattern.UP_PEAK)
+        .passengersPerHour(3600).passengers(passengers).populations(populations).build();
+
+    long fromLobby = 0;
+    long toLobby = 0;
+    long toTenth = 0;
+    long last = 0;
+    for (Iterator<Passenger> it = traffic.passengers(1, topology); it.hasNext(); ) {
+      Passenger passenger = it.next();
+      Assert.assertTrue(passenger.getArrivalTime() >= last);
+      Assert.assertTrue(topology.contains(passenger.getOrigin()) && topology.contains(passenger.getDestination()));
+      Assert.assertNotEquals(20, passenger.getOrigin());
+      Assert.assertNotEquals(20, passenger.getDestination());
+      last = passenger.getArrivalTime();
+      fromLobby += passenger.getOrigin() == 1 ? 1 : 0;
+      toLobby += passenger.getDestination() == 1 ? 1 : 0;
+      toTenth += passenger.getOrigin() == 1 && passenger.getDestination() == 10 ? 1 : 0;
+    }
+
+    // a passenger a second on average
+    Assert.assertEquals(passengers * 1000.0, last, passengers * 10.0);
+    Assert.assertEquals(0.85, (double) fromLobby / passengers, 0.005);
+    Assert.assertEquals(0.05, (double) toLobby / passengers, 0.005);
+    // 10 of 30 people above and below lobby live on the 10th floor
+    Assert.assertEquals(1.0 / 3, (double) toTenth / fromLobby, 0.005);
+  }
+
+  @Test
+  public void drivesScenario() {
+    SyntheticTraffic traffic = SyntheticTraffic.builder().pattern(SyntheticTraffic.Pattern.DOWN_PEAK)
+        .passengersPerHour(1200).passengers(500).build();
+    Scenario scenario = Scenario.builder().seed(3).numElevators(2).capacity(8)
+        .topology(BuildingTopology.ofFloors(12)).traffic(traffic).build();
+
+    ReplayReport report = ScenarioRunner.run(scenario);
+
+    Assert.assertEquals(500, report.getDelivered());
+    Assert.assertEquals(report.getDelivered(), ScenarioRunner.run(scenario).getDelivered());
+    Assert.assertEquals(report.getSimulatedMillis(), ScenarioRunner.run(scenario).getSimulatedMillis());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nobodyToCarry() {
+    SyntheticTraffic.builder().populations(new int[3]).build().passengers(1, BuildingTopology.ofFloors(3));
+  }
+}
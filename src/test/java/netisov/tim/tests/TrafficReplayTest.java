@@ -0,0 +1,89 @@
+package netisov.tim.tests;
+
+import netisov.tim.Elevator;
+import netisov.tim.ElevatorService;
+import netisov.tim.ReplayReport;
+import netisov.tim.SimulationClock;
+import netisov.tim.TraceReader;
+import netisov.tim.TrafficReplay;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringReader;
+
+@RunWith(JUnit4.class)
+public class TrafficReplayTest {
+  private final int speed = 20;
+  private final int floorHeight = 2;
+  private final int doorTimeout = 1;
+
+  @Test
+  public void onePassenger() {
+    ReplayReport report = replay(1, "# time, origin, destination\n0,1,5\n");
+
+    Assert.assertEquals(1, report.getPassengers());
+    Assert.assertEquals(1, report.getDelivered());
+    // door opens at 1st floor, closes, 4 floors up and door opens again
+    Assert.assertEquals(1000, report.getMaxWaitMillis());
+    Assert.assertEquals(1000 + 1000 + 400 + 1000, report.getAverageTripMillis(), 0.0);
+  }
+
+  @Test
+  public void everybodyGetsToDestination() {
+    StringBuilder trace = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      int origin = 1 + (i * 7) % 20;
+      int destination = 1 + (i * 13 + 5) % 20;
+      if (origin != destination) {
+        trace.append(i * 700).append(',').append(origin).append(' ').append(destination).append('\n');
+      }
+    }
+    ReplayReport report = replay(3, trace.toString());
+
+    Assert.assertEquals(report.getPassengers(), report.getDelivered());
+    Assert.assertTrue(report.getPassengersPerHour() > 0);
+  }
+
+  @Test
+  public void fullElevatorComesBack() {
+    // three people going up from the 1st floor to an elevator for two
+    ReplayReport report = replay(1, 2, "0,1,3\n0,1,3\n0,1,2\n");
+
+    Assert.assertEquals(3, report.getDelivered());
+    Assert.assertEquals(1000, report.getWaitTimes().getMin());
+    // door opens at 3rd floor, closes, 2 floors down, door opens at the 1st floor again
+    Assert.assertEquals(1000 + 1000 + 200 + 1000 + 1000 + 200 + 1000, report.getMaxWaitMillis());
+    Assert.assertEquals(1000 + 200 + 1000, report.getRideTimes().getMax());
+  }
+
+  @Test
+  public void nobodyGetsInGoingWrongWay() {
+    // elevator takes the first one up and comes back for the one going down
+    ReplayReport report = replay(1, Elevator.UNLIMITED_CAPACITY, "0,2,4\n0,2,1\n");
+
+    Assert.assertEquals(2, report.getDelivered());
+    Assert.assertEquals(100 + 1000, report.getWaitTimes().getMin());
+    Assert.assertEquals(100 + 1000 + 1000 + 200 + 1000 + 1000 + 200 + 1000, report.getMaxWaitMillis());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrongTrace() {
+    replay(1, "0,1\n");
+  }
+
+  private ReplayReport replay(int numElevators, String trace) {
+    return replay(numElevators, Elevator.UNLIMITED_CAPACITY, trace);
+  }
+
+  private ReplayReport replay(int numElevators, int capacity, String trace) {
+    SimulationClock clock = new SimulationClock();
+    ElevatorService service = new ElevatorService();
+    service.setConsoleOutput(false);
+    for (int i = 0; i < numElevators; i++) {
+      service.createElevator(speed, floorHeight, doorTimeout, clock).setCapacity(capacity);
+    }
+    return new TrafficReplay(service, clock).replay(new TraceReader(new StringReader(trace)));
+  }
+}